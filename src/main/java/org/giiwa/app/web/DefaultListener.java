@@ -71,6 +71,11 @@ public class DefaultListener implements IListener {
     private NtpTask() {
     }
 
+    @Override
+    public String getGroup() {
+      return "cron";
+    }
+
     @Override
     public void onExecute() {
       String ntp = Global.getString("ntp.server", null);
@@ -84,10 +89,6 @@ public class DefaultListener implements IListener {
       }
     }
 
-    @Override
-    public void onFinish() {
-      this.schedule(X.AHOUR);
-    }
   }
 
   /**
@@ -103,6 +104,11 @@ public class DefaultListener implements IListener {
     private RecycleTask() {
     }
 
+    @Override
+    public String getGroup() {
+      return "cron";
+    }
+
     @Override
     public void onExecute() {
       String s = Global.getString("recycle.task", "-1");
@@ -140,10 +146,6 @@ public class DefaultListener implements IListener {
       }.schedule(t);
     }
 
-    @Override
-    public void onFinish() {
-      this.schedule(X.AHOUR);
-    }
   }
 
   static Log log = LogFactory.getLog(DefaultListener.class);
@@ -180,10 +182,11 @@ public class DefaultListener implements IListener {
     setting.register("smtp", setting.mail.class);
     setting.register("counter", setting.counter.class);
 
-    NtpTask.owner.schedule(X.AMINUTE);
-    new CleanupTask(conf).schedule(X.AMINUTE);
+    NtpTask.owner.scheduleAtFixedRate(X.AMINUTE, X.AHOUR);
+    new CleanupTask(conf).scheduleAtFixedRate(X.AMINUTE, X.AHOUR);
     new AppdogTask().schedule(X.AMINUTE);
-    RecycleTask.owner.schedule(X.AMINUTE);
+    // check at the beginning of each hour
+    RecycleTask.owner.scheduleCron("0 * * * *");
 
     /**
      * check and initialize
@@ -684,6 +687,11 @@ public class DefaultListener implements IListener {
       return "cleanup.task";
     }
 
+    @Override
+    public String getGroup() {
+      return "cron";
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -784,16 +792,6 @@ public class DefaultListener implements IListener {
       return Thread.MIN_PRIORITY;
     }
 
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.giiwa.worker.WorkerTask#onFinish()
-     */
-    @Override
-    public void onFinish() {
-      this.schedule(X.AHOUR);
-    }
-
     static String[] folders = { "/temp/_cache", "/temp/_raw" };
   }
 
@@ -81,11 +81,17 @@ public class accesslog extends Model {
     this.set("sortby_type", sortby_type);
 
     q.sort(sortby, sortby_type);
-    Beans<AccessLog> bs = AccessLog.load(q, s, n);
+    this.query.path("/admin/accesslog");
 
-    this.set(bs, s, n);
+    if (s > 0) {
+      // goto the page
+      Beans<AccessLog> bs = AccessLog.load(q, s, n);
+      this.set(bs, s, n);
+    } else {
+      Beans<AccessLog> bs = AccessLog.seek(q, this.getString("cursor"), n);
+      this.set(bs);
+    }
 
-    this.query.path("/admin/accesslog");
     this.show("/admin/accesslog.index.html");
   }
 
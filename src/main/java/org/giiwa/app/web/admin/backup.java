@@ -90,7 +90,7 @@ public class backup extends Model {
 
   }
 
-  @Path(path = "download", login = true, access = "access.config.admin")
+  @Path(path = "download", login = true, access = "access.config.admin", async = true, timeout = 0)
   public void download() {
     JSON jo = JSON.create();
     try {
@@ -193,6 +193,11 @@ public class backup extends Model {
       return "backup.task";
     }
 
+    @Override
+    public String getGroup() {
+      return "io";
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -285,6 +290,11 @@ public class backup extends Model {
       return "recover.task";
     }
 
+    @Override
+    public String getGroup() {
+      return "io";
+    }
+
     /*
      * (non-Javadoc)
      * 
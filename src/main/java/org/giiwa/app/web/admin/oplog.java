@@ -123,10 +123,17 @@ public class oplog extends Model {
     JSON jo = this.getJSON();
     W w = getW(jo);
 
-    Beans<OpLog> bs = OpLog.load(w, s, n);
-    this.set(bs, s, n);
-
     this.query.path("/admin/oplog");
+
+    if (s > 0) {
+      // goto the page
+      Beans<OpLog> bs = OpLog.load(w, s, n);
+      this.set(bs, s, n);
+    } else {
+      Beans<OpLog> bs = OpLog.seek(w, this.getString("cursor"), n);
+      this.set(bs);
+    }
+
     this.show("/admin/oplog.index.html");
   }
 
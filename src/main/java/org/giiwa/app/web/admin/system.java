@@ -14,7 +14,9 @@
 */
 package org.giiwa.app.web.admin;
 
+import org.giiwa.core.bean.X;
 import org.giiwa.core.json.JSON;
+import org.giiwa.core.task.Monitor;
 import org.giiwa.core.task.Task;
 import org.giiwa.framework.bean.User;
 import org.giiwa.framework.web.*;
@@ -68,4 +70,20 @@ public class system extends Model {
     this.response(jo);
   }
 
+  /**
+   * the statistics of the task groups.
+   */
+  @Path(path = "tasks", login = true, access = "access.config.admin")
+  public void tasks() {
+    JSON jo = new JSON();
+    jo.put("active", Task.activeThread());
+    jo.put("idle", Task.idleThread());
+    jo.put("pending", Task.tasksInQueue());
+    jo.put("groups", Task.getGroupStats());
+    jo.put("periodics", Monitor.periodics());
+    jo.put(X.STATE, 200);
+
+    this.response(jo);
+  }
+
 }
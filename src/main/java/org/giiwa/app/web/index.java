@@ -7,7 +7,7 @@ import org.giiwa.framework.web.Path;
 
 public class index extends Model {
 
-  @Path()
+  @Path(cache = X.AMINUTE)
   public void onGet() {
     String h1 = Global.getString("home.uri", X.EMPTY);
     if (!X.isEmpty(h1)) {
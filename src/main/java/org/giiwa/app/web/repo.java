@@ -39,7 +39,7 @@ public class repo extends Model {
    * Download.
    */
   @SuppressWarnings("deprecation")
-  @Path(path = "download", login = true)
+  @Path(path = "download", login = true, async = true, timeout = 0)
   public void download() {
     if (path != null) {
       String id = path;
@@ -15,7 +15,6 @@
 package org.giiwa.core.bean;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -54,6 +53,15 @@ public abstract class Bean implements Serializable, Map<String, Object> {
     return expired > 0 && System.currentTimeMillis() > expired;
   }
 
+  /**
+   * get the expired time that set by setExpired
+   * 
+   * @return long of the expired time, -1 if not set
+   */
+  public final long getExpiredTime() {
+    return expired;
+  }
+
   /**
    * get the created timestamp of the data
    * 
@@ -119,80 +127,40 @@ public abstract class Bean implements Serializable, Map<String, Object> {
    * @return Object of the old value
    */
   public final Object set(String name, Object value) {
-    if (data == null) {
-      data = new HashMap<String, Object>();
-    }
-
-    Object old = null;
-
     name = name.toLowerCase();
 
     // looking for all the fields
-    Field f1 = _getField(name);
+    Binder.Accessor f1 = Binder.get(this.getClass()).get(name);
     if (f1 != null) {
-      try {
-        // log.debug("f1=" + f1 + ", value=" + value);
-        f1.setAccessible(true);
-        old = f1.get(this);
-
-        Class<?> t1 = f1.getType();
-        // log.debug("t1=" + t1 + ", f1.name=" + f1.getName());
-        if (t1 == long.class) {
-          f1.set(this, X.toLong(value));
-        } else if (t1 == int.class) {
-          f1.set(this, X.toInt(value));
-        } else if (t1 == double.class) {
-          f1.set(this, X.toDouble(value, 0));
-        } else if (t1 == float.class) {
-          f1.set(this, X.toFloat(value, 0));
-        } else {
-          f1.set(this, value);
-        }
-      } catch (Exception e) {
-        log.error(name + "=" + value, e);
-      }
-      // } else {
-      // log.debug("not found the column=" + name);
-    } else {
-      old = data.get(name);
-      if (value == null) {
-        data.remove(name);
-      } else {
-        data.put(name, value);
-      }
+      return f1.set(this, value);
     }
-    return old;
-  }
-
-  private Field _getField(String columnname) {
-
-    Map<String, Field> m = _getFields();
-    return m == null ? null : m.get(columnname);
 
+    return setData(name, value);
   }
 
-  private Map<String, Field> _getFields() {
-
-    Class<? extends Bean> c1 = this.getClass();
-    Map<String, Field> m = _fields.get(c1);
-    if (m == null) {
-      m = new HashMap<String, java.lang.reflect.Field>();
-
-      Field[] ff = c1.getDeclaredFields();
-      for (Field f : ff) {
-        Column f1 = f.getAnnotation(Column.class);
-        if (f1 != null) {
-          m.put(f1.name().toLowerCase(), f);
-        }
-      }
+  /**
+   * set the value to the extra data only, the name MUST be lower case
+   * 
+   * @param name
+   *          the name
+   * @param value
+   *          the value, if the value=null, then remove the name from the data
+   * @return Object of the old value
+   */
+  final Object setData(String name, Object value) {
+    if (data == null) {
+      data = new HashMap<String, Object>();
+    }
 
-      _fields.put(c1, m);
+    Object old = data.get(name);
+    if (value == null) {
+      data.remove(name);
+    } else {
+      data.put(name, value);
     }
-    return m;
+    return old;
   }
 
-  private static Map<Class<? extends Bean>, Map<String, Field>> _fields = new HashMap<Class<? extends Bean>, Map<String, Field>>();
-
   /**
    * get the value by name from bean <br>
    *
@@ -206,14 +174,9 @@ public abstract class Bean implements Serializable, Map<String, Object> {
     }
 
     String s = name.toString().toLowerCase();
-    Field f = _getField(s);
+    Binder.Accessor f = Binder.get(this.getClass()).get(s);
     if (f != null) {
-      try {
-        f.setAccessible(true);
-        return f.get(this);
-      } catch (Exception e) {
-        log.error(name, e);
-      }
+      return f.get(this);
     }
 
     if (data == null) {
@@ -320,16 +283,8 @@ public abstract class Bean implements Serializable, Map<String, Object> {
     /**
      * clear data Annotation by @Column
      */
-    Map<String, Field> m1 = this._getFields();
-    if (m1 != null && m1.size() > 0) {
-      for (Field f : m1.values()) {
-        try {
-          f.setAccessible(true);
-          f.set(this, null);
-        } catch (Exception e) {
-          log.error(e.getMessage(), e);
-        }
-      }
+    for (Binder.Accessor f : Binder.get(this.getClass()).accessors()) {
+      f.set(this, null);
     }
 
   }
@@ -438,17 +393,8 @@ public abstract class Bean implements Serializable, Map<String, Object> {
       m1.putAll(data);
     }
 
-    Map<String, Field> m2 = _getFields();
-    if (m2 != null && m2.size() > 0) {
-      for (String name : m2.keySet()) {
-        Field f = m2.get(name);
-        try {
-          f.setAccessible(true);
-          m1.put(name, f.get(this));
-        } catch (Exception e) {
-          log.error(e.getMessage(), e);
-        }
-      }
+    for (Binder.Accessor f : Binder.get(this.getClass()).accessors()) {
+      m1.put(f.name, f.get(this));
     }
 
     return m1;
@@ -523,18 +469,7 @@ public abstract class Bean implements Serializable, Map<String, Object> {
     ResultSetMetaData m = r.getMetaData();
     int cols = m.getColumnCount();
     for (int i = 1; i <= cols; i++) {
-      Object o = r.getObject(i);
-      if (o instanceof java.sql.Date) {
-
-        o = ((java.sql.Date) o).toString();
-
-      } else if (o instanceof java.sql.Time) {
-        o = ((java.sql.Time) o).toString();
-      } else if (o instanceof java.sql.Timestamp) {
-        o = ((java.sql.Timestamp) o).toString();
-      } else if (o instanceof java.math.BigDecimal) {
-        o = o.toString();
-      }
+      Object o = toValue(r.getObject(i));
 
       String name = m.getColumnName(i);
       this.set(name, o);
@@ -542,4 +477,27 @@ public abstract class Bean implements Serializable, Map<String, Object> {
     }
   }
 
+  /**
+   * convert the value of the RDBS to the value in bean, the sql date, time,
+   * timestamp and big decimal are converted to string
+   * 
+   * @param o
+   *          the value from the ResultSet
+   * @return the value
+   */
+  static Object toValue(Object o) {
+    if (o instanceof java.sql.Date) {
+
+      o = ((java.sql.Date) o).toString();
+
+    } else if (o instanceof java.sql.Time) {
+      o = ((java.sql.Time) o).toString();
+    } else if (o instanceof java.sql.Timestamp) {
+      o = ((java.sql.Timestamp) o).toString();
+    } else if (o instanceof java.math.BigDecimal) {
+      o = o.toString();
+    }
+    return o;
+  }
+
 }
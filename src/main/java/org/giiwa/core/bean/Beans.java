@@ -42,6 +42,10 @@ public final class Beans<T extends Bean> implements Serializable {
   /** The list. */
   List<T>                   list;
 
+  /** The cursor token of the next and prev page, for seek paging. */
+  String                    next;
+  String                    prev;
+
   /**
    * Gets the total. please set the total first, than...
    *
@@ -80,6 +84,26 @@ public final class Beans<T extends Bean> implements Serializable {
     this.list = list;
   }
 
+  /**
+   * Gets the cursor token of the next page, it's only available when loaded
+   * by Helper.seek(...)
+   *
+   * @return the cursor token, null if no more
+   */
+  public String getNext() {
+    return next;
+  }
+
+  /**
+   * Gets the cursor token of the prev page, it's only available when loaded
+   * by Helper.seek(...)
+   *
+   * @return the cursor token, null if it's the first page
+   */
+  public String getPrev() {
+    return prev;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.bean;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The {@code Binder} Class used to bind the column to the field annotation
+ * by @Column of the Bean, it's compiled once for each Bean Class, and the
+ * field is accessed by MethodHandle instead of reflection.
+ *
+ * @author joe
+ *
+ */
+final class Binder {
+
+  private static Log                                        log     = LogFactory.getLog(Binder.class);
+
+  private static final MethodType                           GETTER  = MethodType.methodType(Object.class,
+      Bean.class);
+  private static final MethodType                           SETTER  = MethodType.methodType(void.class, Bean.class,
+      Object.class);
+
+  private static final Map<Class<? extends Bean>, Binder> binders = new ConcurrentHashMap<Class<? extends Bean>, Binder>();
+
+  /**
+   * the accessors, key is the lower case of the column name, immutable after
+   * created
+   */
+  private final Map<String, Accessor>                       fields;
+
+  /**
+   * true if the Bean Class override the load(ResultSet)
+   */
+  private final boolean                                     custom;
+
+  /**
+   * get the Binder of the Bean Class, create it if not exists.
+   *
+   * @param c
+   *          the Bean Class
+   * @return the Binder
+   */
+  static Binder get(Class<? extends Bean> c) {
+    Binder b = binders.get(c);
+    if (b == null) {
+      b = new Binder(c);
+      Binder b1 = binders.putIfAbsent(c, b);
+      if (b1 != null) {
+        b = b1;
+      }
+    }
+    return b;
+  }
+
+  private Binder(Class<? extends Bean> c) {
+    Map<String, Accessor> m = new HashMap<String, Accessor>();
+
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    for (Field f : c.getDeclaredFields()) {
+      Column f1 = f.getAnnotation(Column.class);
+      if (f1 != null) {
+        try {
+          f.setAccessible(true);
+          MethodHandle getter = lookup.unreflectGetter(f).asType(GETTER);
+          MethodHandle setter = Modifier.isFinal(f.getModifiers()) ? null : lookup.unreflectSetter(f).asType(SETTER);
+
+          String name = f1.name().toLowerCase();
+          m.put(name, new Accessor(name, f.getType(), getter, setter));
+        } catch (Exception e) {
+          log.error(c + "." + f.getName(), e);
+        }
+      }
+    }
+
+    fields = Collections.unmodifiableMap(m);
+
+    boolean overrided = false;
+    for (Class<?> c1 = c; c1 != Bean.class && c1 != null; c1 = c1.getSuperclass()) {
+      try {
+        c1.getDeclaredMethod("load", ResultSet.class);
+        overrided = true;
+        break;
+      } catch (NoSuchMethodException e) {
+        // not override
+      }
+    }
+    custom = overrided;
+  }
+
+  /**
+   * get the accessor of the column.
+   *
+   * @param name
+   *          the lower case of the column name
+   * @return the Accessor, null if not the field
+   */
+  Accessor get(String name) {
+    return fields.get(name);
+  }
+
+  /**
+   * get all the accessors.
+   *
+   * @return the Collection
+   */
+  Collection<Accessor> accessors() {
+    return fields.values();
+  }
+
+  /**
+   * create the mapping for the result set, the mapping can be used for all
+   * rows of the result set.
+   *
+   * @param r
+   *          the ResultSet
+   * @return the Mapping
+   * @throws SQLException
+   *           the SQL exception
+   */
+  Mapping mapping(ResultSet r) throws SQLException {
+    if (custom) {
+      return new Mapping(null, null);
+    }
+
+    ResultSetMetaData m = r.getMetaData();
+    int cols = m.getColumnCount();
+    String[] names = new String[cols];
+    Accessor[] accessors = new Accessor[cols];
+    for (int i = 0; i < cols; i++) {
+      names[i] = m.getColumnName(i + 1).toLowerCase();
+      accessors[i] = fields.get(names[i]);
+    }
+    return new Mapping(names, accessors);
+  }
+
+  /**
+   * The {@code Mapping} Class is the column index to the field of the result
+   * set.
+   */
+  static final class Mapping {
+
+    private final String[]   names;
+    private final Accessor[] accessors;
+
+    private Mapping(String[] names, Accessor[] accessors) {
+      this.names = names;
+      this.accessors = accessors;
+    }
+
+    /**
+     * load the current row of the result set to the Bean.
+     *
+     * @param b
+     *          the Bean
+     * @param r
+     *          the ResultSet
+     * @throws SQLException
+     *           the SQL exception
+     */
+    void load(Bean b, ResultSet r) throws SQLException {
+      if (names == null) {
+        // the Bean has its own load
+        b.load(r);
+        return;
+      }
+
+      for (int i = 0; i < names.length; i++) {
+        Object o = Bean.toValue(r.getObject(i + 1));
+        Accessor a = accessors[i];
+        if (a != null) {
+          // no old value for the row
+          a.put(b, o);
+        } else {
+          b.setData(names[i], o);
+        }
+      }
+    }
+  }
+
+  /**
+   * The {@code Accessor} Class is the getter and setter of the field.
+   */
+  static final class Accessor {
+
+    final String               name;
+    private final Class<?>     type;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    private Accessor(String name, Class<?> type, MethodHandle getter, MethodHandle setter) {
+      this.name = name;
+      this.type = type;
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    /**
+     * get the value of the field.
+     *
+     * @param b
+     *          the Bean
+     * @return the value
+     */
+    Object get(Bean b) {
+      try {
+        return (Object) getter.invokeExact(b);
+      } catch (Throwable e) {
+        log.error(name, e);
+      }
+      return null;
+    }
+
+    /**
+     * set the value to the field, the value will be converted if the field is
+     * primitive.
+     *
+     * @param b
+     *          the Bean
+     * @param value
+     *          the value
+     * @return the old value
+     */
+    Object set(Bean b, Object value) {
+      Object old = get(b);
+      put(b, value);
+      return old;
+    }
+
+    /**
+     * set the value to the field without reading the old value.
+     *
+     * @param b
+     *          the Bean
+     * @param value
+     *          the value
+     */
+    void put(Bean b, Object value) {
+      if (setter == null) {
+        log.error("final field, " + name + "=" + value);
+        return;
+      }
+
+      try {
+        if (type == long.class) {
+          value = X.toLong(value);
+        } else if (type == int.class) {
+          value = X.toInt(value);
+        } else if (type == double.class) {
+          value = X.toDouble(value, 0);
+        } else if (type == float.class) {
+          value = X.toFloat(value, 0);
+        }
+
+        setter.invokeExact(b, value);
+      } catch (Throwable e) {
+        log.error(name + "=" + value, e);
+      }
+    }
+  }
+
+}
@@ -14,15 +14,18 @@
 */
 package org.giiwa.core.bean;
 
+import java.io.Closeable;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import org.apache.commons.configuration.Configuration;
@@ -1140,6 +1143,41 @@ public class Helper {
 
   }
 
+  /**
+   * the {@code Cursor} Class used to iterate the Bean one by one from the
+   * database without loading all in memory, it MUST be closed after used, it
+   * will be closed automatically when reach the end. <br>
+   * the hasNext/next throw RuntimeException if the data can not be fetched, so
+   * the broken iteration is not taken as the end.
+   *
+   * @param <T>
+   *          the subclass of Bean
+   */
+  public static interface Cursor<T extends Bean> extends Iterator<T>, Closeable {
+
+    /**
+     * close the cursor and release the resource, the exception will be ignored
+     */
+    public void close();
+
+  }
+
+  /**
+   * the {@code Tx} Class is the work that run in one transaction by
+   * Helper.tx(...)
+   */
+  public static interface Tx {
+
+    /**
+     * run the work, throw exception to rollback the transaction
+     *
+     * @throws Exception
+     *           the exception
+     */
+    public void run() throws Exception;
+
+  }
+
   public static interface Monitor {
 
     /**
@@ -1363,6 +1401,128 @@ public class Helper {
     return 0;
   }
 
+  /**
+   * batch insert the list of values by the Class of T, the rows which have the
+   * same column set will be sent to database in one batch.
+   *
+   * @param values
+   *          the list of values
+   * @param t
+   *          the Class of Bean
+   * @return the result of each row, same order as the values, 0: failed
+   */
+  public static int[] insert(List<V> values, Class<? extends Bean> t) {
+    return insert(values, t, DEFAULT);
+  }
+
+  /**
+   * batch insert the list of values by the Class of T in the "db"
+   *
+   * @param values
+   *          the list of values
+   * @param t
+   *          the Class of Bean
+   * @param db
+   *          the database pool name
+   * @return the result of each row, same order as the values, 0: failed
+   */
+  public static int[] insert(List<V> values, Class<? extends Bean> t, String db) {
+    int[] rs = new int[values == null ? 0 : values.size()];
+    if (rs.length == 0) {
+      return rs;
+    }
+
+    String table = getTable(t);
+
+    if (table != null) {
+      long now = System.currentTimeMillis();
+      for (V v : values) {
+        v.set("created", now).set("updated", now);
+      }
+
+      if (primary == DBType.MONGO) {
+        // insert into mongo
+        return MongoHelper.insertCollection(table, values, db);
+      } else if (primary == DBType.RDS) {
+
+        // insert into RDS
+        return RDSHelper.insertTable(table, values, db);
+      } else {
+        log.warn("no db configured, please configure the {giiwa}/giiwa.properites");
+      }
+    }
+
+    return rs;
+  }
+
+  /**
+   * batch update the table, the i-th query will be updated by the i-th values,
+   * the rows which have the same query shape and column set will be sent to
+   * database in one batch.
+   *
+   * @param q
+   *          the list of query
+   * @param values
+   *          the list of values, the size MUST be same as the query list
+   * @param t
+   *          the Class of Bean
+   * @return the number of updated of each row, same order as the values
+   */
+  public static int[] update(List<W> q, List<V> values, Class<? extends Bean> t) {
+    return update(q, values, t, DEFAULT);
+  }
+
+  /**
+   * batch update the table in the "db"
+   *
+   * @param q
+   *          the list of query
+   * @param values
+   *          the list of values, the size MUST be same as the query list
+   * @param t
+   *          the Class of Bean
+   * @param db
+   *          the database pool name
+   * @return the number of updated of each row, same order as the values
+   */
+  public static int[] update(List<W> q, List<V> values, Class<? extends Bean> t, String db) {
+    int[] rs = new int[values == null ? 0 : values.size()];
+    if (rs.length == 0) {
+      return rs;
+    }
+
+    if (q == null || q.size() != values.size()) {
+      throw new IllegalArgumentException("the size of query and values are not same");
+    }
+
+    String table = getTable(t);
+
+    if (table != null) {
+      long now = System.currentTimeMillis();
+      for (V v : values) {
+        v.set("updated", now);
+      }
+
+      if (monitor != null) {
+        for (W w : q) {
+          monitor.query(table, w);
+        }
+      }
+
+      if (primary == DBType.MONGO) {
+        // update in mongo
+        return MongoHelper.updateCollection(table, q, values, db);
+      } else if (primary == DBType.RDS) {
+        // update in RDS
+        return RDSHelper.updateTable(table, q, values, db);
+      } else {
+        log.warn("no db configured, please configure the {giiwa}/giiwa.properites");
+      }
+    }
+
+    return rs;
+  }
+
   /**
    * test is configured RDS or Mongo
    * 
@@ -1433,6 +1593,317 @@ public class Helper {
     return load(table, q, s, n, t);
   }
 
+  /**
+   * load the data by the cursor token (keyset/seek paging), the next page is
+   * loaded by the range predicate of the sort keys of the last row, instead of
+   * skipping "offset" rows, so it's not slow down in deep pages. <br>
+   * the order of the query should be unique, the X.ID will be appended as the
+   * last sort key if not in the order.
+   *
+   * @param <T>
+   *          the subclass of Bean
+   * @param q
+   *          the query and order
+   * @param cursor
+   *          the cursor token, Beans.getNext() or Beans.getPrev(), null for the
+   *          first page
+   * @param n
+   *          the number of the page
+   * @param t
+   *          the Class of Bean
+   * @return the Beans, with the next and prev cursor token
+   */
+  public static <T extends Bean> Beans<T> seek(W q, String cursor, int n, Class<T> t) {
+    return seek(q, cursor, n, t, DEFAULT);
+  }
+
+  /**
+   * load the data by the cursor token in the "db"
+   *
+   * @param <T>
+   *          the subclass of Bean
+   * @param q
+   *          the query and order
+   * @param cursor
+   *          the cursor token, null for the first page
+   * @param n
+   *          the number of the page
+   * @param t
+   *          the Class of Bean
+   * @param db
+   *          the database pool name
+   * @return the Beans, with the next and prev cursor token
+   */
+  public static <T extends Bean> Beans<T> seek(W q, String cursor, int n, Class<T> t, String db) {
+    String table = getTable(t);
+    if (table == null) {
+      return null;
+    }
+
+    if (q == null) {
+      q = W.create();
+    }
+
+    List<W.Entity> order = new ArrayList<W.Entity>(q.order);
+    boolean id = false;
+    for (W.Entity e : order) {
+      if (X.isSame(e.name, X.ID)) {
+        id = true;
+        break;
+      }
+    }
+    if (!id) {
+      order.add(new W.Entity(X.ID, 1, W.OP.none, W.AND));
+    }
+
+    JSON jo = _cursor(cursor);
+    int d = jo == null ? 1 : jo.getInt("d");
+
+    if (monitor != null) {
+      monitor.query(table, q);
+    }
+
+    Beans<T> bs = null;
+    if (primary == DBType.MONGO) {
+      BasicDBObject query = q.query();
+      if (jo != null) {
+        BasicDBList l1 = new BasicDBList();
+        for (int i = 0; i < order.size(); i++) {
+          BasicDBObject q1 = new BasicDBObject();
+          for (int j = 0; j < i; j++) {
+            q1.append(order.get(j).name, jo.get("v" + j));
+          }
+          W.Entity e = order.get(i);
+          boolean gt = X.toInt(e.value) * d > 0;
+          q1.append(e.name, new BasicDBObject(gt ? "$gt" : "$lt", jo.get("v" + i)));
+          l1.add(q1);
+        }
+        BasicDBList l2 = new BasicDBList();
+        l2.add(query);
+        l2.add(new BasicDBObject("$or", l1));
+        query = new BasicDBObject("$and", l2);
+      }
+
+      BasicDBObject orderby = new BasicDBObject();
+      for (W.Entity e : order) {
+        orderby.append(e.name, X.toInt(e.value) * d);
+      }
+
+      bs = MongoHelper.load(table, query, orderby, 0, n, t, db);
+    } else if (primary == DBType.RDS) {
+      W q1 = q.copy();
+      if (jo != null) {
+        W w = W.create();
+        for (int i = 0; i < order.size(); i++) {
+          W w1 = W.create();
+          for (int j = 0; j < i; j++) {
+            w1.and(order.get(j).name, jo.get("v" + j));
+          }
+          W.Entity e = order.get(i);
+          boolean gt = X.toInt(e.value) * d > 0;
+          w1.and(e.name, jo.get("v" + i), gt ? W.OP.gt : W.OP.lt);
+          w.or(w1);
+        }
+        q1.and(w);
+      }
+      for (W.Entity e : order) {
+        q1.sort(e.name, X.toInt(e.value) * d);
+      }
+
+      bs = RDSHelper.load(table, q1, 0, n, t, db);
+    }
+
+    if (bs != null && bs.list != null) {
+      if (d < 0) {
+        Collections.reverse(bs.list);
+      }
+
+      int size = bs.list.size();
+      if (size > 0) {
+        boolean more = size >= n;
+        if (d < 0 || more) {
+          bs.next = _cursor(bs.list.get(size - 1), order, 1);
+        }
+        if (d < 0 ? more : jo != null) {
+          bs.prev = _cursor(bs.list.get(0), order, -1);
+        }
+      }
+    }
+
+    return bs;
+  }
+
+  /**
+   * create the cursor token by the sort keys of the Bean.
+   */
+  private static String _cursor(Bean b, List<W.Entity> order, int d) {
+    JSON jo = JSON.create();
+    jo.put("d", d);
+    for (int i = 0; i < order.size(); i++) {
+      jo.put("v" + i, b.get(order.get(i).name));
+    }
+    try {
+      return java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(jo.toString().getBytes("UTF-8"));
+    } catch (Exception e) {
+      log.error(jo, e);
+    }
+    return null;
+  }
+
+  /**
+   * parse the cursor token.
+   */
+  private static JSON _cursor(String cursor) {
+    if (X.isEmpty(cursor)) {
+      return null;
+    }
+    try {
+      return JSON.fromObject(new String(java.util.Base64.getUrlDecoder().decode(cursor), "UTF-8"));
+    } catch (Exception e) {
+      log.error("bad cursor=" + cursor, e);
+    }
+    return null;
+  }
+
+  /**
+   * open a cursor for the data by query, the data will be fetched in batch
+   * when iterating, the memory is constant whatever the result size. <br>
+   * the cursor MUST be closed after used.
+   *
+   * @param <T>
+   *          the subclass of Bean
+   * @param q
+   *          the query and order
+   * @param t
+   *          the Class of Bean
+   * @return the Cursor, or null if failed
+   */
+  public static <T extends Bean> Cursor<T> stream(W q, Class<T> t) {
+    return stream(q, t, DEFAULT);
+  }
+
+  /**
+   * open a cursor for the data by query in the "db"
+   *
+   * @param <T>
+   *          the subclass of Bean
+   * @param q
+   *          the query and order
+   * @param t
+   *          the Class of Bean
+   * @param db
+   *          the database pool name
+   * @return the Cursor, or null if failed
+   */
+  public static <T extends Bean> Cursor<T> stream(W q, Class<T> t, String db) {
+    String table = getTable(t);
+
+    if (table != null) {
+      if (monitor != null) {
+        monitor.query(table, q);
+      }
+
+      if (primary == DBType.MONGO) {
+        return MongoHelper.stream(table, q, t, db);
+      } else if (primary == DBType.RDS) {
+        return RDSHelper.stream(table, q, t, db);
+      } else {
+        log.warn("no db configured, please configure the {giiwa}/giiwa.properites");
+      }
+    }
+    return null;
+  }
+
+  /**
+   * iterate all the data by query, the cursor will be closed after all done or
+   * the consumer throws exception.
+   *
+   * @param <T>
+   *          the subclass of Bean
+   * @param q
+   *          the query and order
+   * @param t
+   *          the Class of Bean
+   * @param func
+   *          the consumer of each Bean
+   * @return the number of data iterated
+   */
+  public static <T extends Bean> long forEach(W q, Class<T> t, Consumer<T> func) {
+    return forEach(q, t, func, DEFAULT);
+  }
+
+  /**
+   * iterate all the data by query in the "db"
+   *
+   * @param <T>
+   *          the subclass of Bean
+   * @param q
+   *          the query and order
+   * @param t
+   *          the Class of Bean
+   * @param func
+   *          the consumer of each Bean
+   * @param db
+   *          the database pool name
+   * @return the number of data iterated
+   * @throws RuntimeException
+   *           if the data can not be fetched
+   */
+  public static <T extends Bean> long forEach(W q, Class<T> t, Consumer<T> func, String db) {
+    long n = 0;
+    Cursor<T> c = stream(q, t, db);
+    if (c != null) {
+      try {
+        while (c.hasNext()) {
+          func.accept(c.next());
+          n++;
+        }
+      } finally {
+        c.close();
+      }
+    }
+    return n;
+  }
+
+  /**
+   * run the work in one transaction of the default db, all the
+   * insert/update/delete in the work (in same thread) share one connection
+   * and commit once, or rollback if the work throws exception.
+   *
+   * @param t
+   *          the work
+   * @return true if committed, false if rollback
+   */
+  public static boolean tx(Tx t) {
+    return tx(t, DEFAULT);
+  }
+
+  /**
+   * run the work in one transaction of the db. <br>
+   * the transaction is only supported by RDS, for Mongo, the work runs
+   * without transaction (the mongo driver does not support it).
+   *
+   * @param t
+   *          the work
+   * @param db
+   *          the db name
+   * @return true if committed, false if rollback or failed
+   */
+  public static boolean tx(Tx t, String db) {
+    if (primary == DBType.RDS) {
+      return RDSHelper.tx(t, db);
+    }
+
+    try {
+      t.run();
+      return true;
+    } catch (Exception e) {
+      if (log.isErrorEnabled())
+        log.error(e.getMessage(), e);
+    }
+    return false;
+  }
+
   /**
    * get the table name from the Class of Bean.
    *
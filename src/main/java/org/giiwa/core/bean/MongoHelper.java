@@ -22,10 +22,12 @@ import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.zip.ZipEntry;
@@ -37,14 +39,20 @@ import org.bson.conversions.Bson;
 import org.giiwa.core.json.JSON;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateManyModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
@@ -435,6 +443,101 @@ public class MongoHelper extends Helper {
     return null;
   }
 
+  /**
+   * the number of documents fetched in one round-trip by the cursor
+   */
+  public static int BATCHSIZE = 1000;
+
+  /**
+   * open a cursor for the data, the documents will be fetched by "BATCHSIZE"
+   * when iterating, no limit on the number of documents.
+   *
+   * @param <T>
+   *          the generic Bean Class
+   * @param collection
+   *          the collection name
+   * @param q
+   *          the query and order
+   * @param clazz
+   *          the Bean Class
+   * @param db
+   *          the db name
+   * @return the Cursor, or null if failed
+   */
+  public static <T extends Bean> Cursor<T> stream(String collection, W q, final Class<T> clazz, String db) {
+    try {
+      MongoCollection<Document> db1 = MongoHelper.getCollection(db, collection);
+      if (db1 != null) {
+        FindIterable<Document> cur = db1.find(q.query());
+
+        BasicDBObject orderBy = q.order();
+        if (orderBy != null && !orderBy.isEmpty()) {
+          cur.sort(orderBy);
+        }
+
+        cur.batchSize(BATCHSIZE);
+
+        if (log.isDebugEnabled())
+          log.debug("stream - collection=" + collection + ", query=" + q);
+
+        return new MongoCursorImpl<T>(clazz, cur.iterator());
+      }
+    } catch (Exception e) {
+      log.error("query=" + q, e);
+    }
+    return null;
+  }
+
+  private static class MongoCursorImpl<T extends Bean> implements Cursor<T> {
+
+    Class<T>              t;
+    MongoCursor<Document> it;
+    boolean               closed;
+
+    private MongoCursorImpl(Class<T> t, MongoCursor<Document> it) {
+      this.t = t;
+      this.it = it;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (closed) {
+        return false;
+      }
+
+      if (!it.hasNext()) {
+        close();
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      try {
+        T b = t.newInstance();
+        b.load(it.next());
+        return b;
+      } catch (Exception e) {
+        close();
+        throw new RuntimeException(e.getMessage(), e);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        it.close();
+      }
+    }
+
+  }
+
   /**
    * load the data full into the t.
    * 
@@ -605,6 +708,111 @@ public class MongoHelper extends Helper {
     return 0;
   }
 
+  /**
+   * batch insert into the collection by "insertMany", unordered, the failure of
+   * one row will not stop the others
+   *
+   * @param collection
+   *          the collection name
+   * @param list
+   *          the list of values
+   * @param db
+   *          the db name
+   * @return the result of each row, 1: inserted, 0: failed
+   */
+  final public static int[] insertCollection(String collection, List<V> list, String db) {
+
+    int[] rs = new int[list.size()];
+
+    MongoCollection<Document> c = getCollection(db, collection);
+    if (c != null) {
+      List<Document> docs = new ArrayList<Document>(list.size());
+      for (V v : list) {
+        Document d = new Document();
+        for (String name : v.names()) {
+          d.append(name, v.value(name));
+        }
+        docs.add(d);
+      }
+
+      Arrays.fill(rs, 1);
+      try {
+
+        c.insertMany(docs, new InsertManyOptions().ordered(false));
+
+        if (log.isDebugEnabled())
+          log.debug("inserted collection=" + collection + ", n=" + docs.size());
+      } catch (MongoBulkWriteException e) {
+        if (log.isErrorEnabled())
+          log.error(e.getMessage(), e);
+        for (BulkWriteError e1 : e.getWriteErrors()) {
+          rs[e1.getIndex()] = 0;
+        }
+      } catch (Exception e) {
+        if (log.isErrorEnabled())
+          log.error(e.getMessage(), e);
+        Arrays.fill(rs, 0);
+      }
+    }
+    return rs;
+  }
+
+  /**
+   * batch update the collection by "bulkWrite", the i-th query will be updated
+   * by the i-th values, unordered. <br>
+   * the bulkWrite does not report the updated number of each row, so the
+   * result of each row is 1 if no error, 0 if failed
+   *
+   * @param collection
+   *          the collection name
+   * @param q
+   *          the list of query
+   * @param list
+   *          the list of values
+   * @param db
+   *          the db name
+   * @return the result of each row
+   */
+  final public static int[] updateCollection(String collection, List<W> q, List<V> list, String db) {
+
+    int[] rs = new int[list.size()];
+
+    MongoCollection<Document> c = getCollection(db, collection);
+    if (c != null) {
+      List<UpdateManyModel<Document>> ops = new ArrayList<UpdateManyModel<Document>>(list.size());
+      for (int i = 0; i < list.size(); i++) {
+        V v = list.get(i);
+        Document d = new Document();
+        for (String name : v.names()) {
+          d.append(name, v.value(name));
+        }
+        W q1 = q.get(i);
+        ops.add(new UpdateManyModel<Document>(q1 == null ? new BasicDBObject() : q1.query(),
+            new Document("$set", d)));
+      }
+
+      Arrays.fill(rs, 1);
+      try {
+
+        BulkWriteResult r = c.bulkWrite(ops, new BulkWriteOptions().ordered(false));
+
+        if (log.isDebugEnabled())
+          log.debug("updated collection=" + collection + ", n=" + ops.size() + ", result=" + r);
+      } catch (MongoBulkWriteException e) {
+        if (log.isErrorEnabled())
+          log.error(e.getMessage(), e);
+        for (BulkWriteError e1 : e.getWriteErrors()) {
+          rs[e1.getIndex()] = 0;
+        }
+      } catch (Exception e) {
+        if (log.isErrorEnabled())
+          log.error(e.getMessage(), e);
+        Arrays.fill(rs, 0);
+      }
+    }
+    return rs;
+  }
+
   /**
    * update mongo collection.
    * 
@@ -17,6 +17,7 @@ package org.giiwa.core.bean;
 import java.io.File;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
@@ -118,6 +119,9 @@ public class RDB {
   /** The conf. */
   private static Configuration                conf;
 
+  /** The dialect of each pool, key is the name of the pool. */
+  private static Map<String, String>          dialects          = new ConcurrentHashMap<String, String>();
+
   /**
    * initialize the DB object from the "giiwa.properties"
    */
@@ -179,10 +183,7 @@ public class RDB {
     try {
       c = getConnection();
       if (c != null) {
-        String s = c.getMetaData().getDatabaseProductName().toLowerCase();
-        String[] ss = X.split(s, "[ /]");
-
-        return ss[0];
+        return getDriver(c);
       }
     } catch (Exception e) {
       log.error(e.getMessage(), e);
@@ -204,9 +205,7 @@ public class RDB {
     try {
       c = getConnection(name);
       if (c != null) {
-        String s = c.getMetaData().getDatabaseProductName().toLowerCase();
-        String[] ss = X.split(s, "[ /]");
-        return ss[0];
+        return getDriver(c);
       }
     } catch (Exception e) {
       log.error(e.getMessage(), e);
@@ -216,6 +215,47 @@ public class RDB {
     return null;
   }
 
+  /**
+   * Gets the driver of the connection, the lower case of the first word of the
+   * database product name, such as "mysql", "oracle", "postgresql".
+   *
+   * @param c
+   *          the connection
+   * @return the driver
+   * @throws SQLException
+   *           the SQL exception
+   */
+  public static String getDriver(Connection c) throws SQLException {
+    String s = c.getMetaData().getDatabaseProductName().toLowerCase();
+    String[] ss = X.split(s, "[ /]");
+    return ss[0];
+  }
+
+  /**
+   * Gets the dialect of the db pool, it's same as getDriver(Connection), but
+   * memorized for each pool, so it only get the metadata once.
+   *
+   * @param name
+   *          the name of the pool, null or empty for the default pool
+   * @param c
+   *          the connection that got from the pool
+   * @return the dialect, such as "mysql", "oracle"
+   * @throws SQLException
+   *           the SQL exception
+   */
+  public static String getDialect(String name, Connection c) throws SQLException {
+    if (name == null) {
+      name = X.EMPTY;
+    }
+
+    String d = dialects.get(name);
+    if (d == null) {
+      d = getDriver(c);
+      dialects.put(name, d);
+    }
+    return d;
+  }
+
   /**
    * initialize the DB object by the configuration.
    *
@@ -223,6 +263,8 @@ public class RDB {
    *          the conf
    */
   public static void init(Properties conf) {
+    dialects.clear();
+
     // if (ds == null) {
     if (conf.containsKey("db.driver")) {
       DRIVER = conf.getProperty("db.driver");
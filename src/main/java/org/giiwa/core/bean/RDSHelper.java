@@ -20,6 +20,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
@@ -29,11 +30,17 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -60,24 +67,87 @@ public class RDSHelper extends Helper {
     oracle.put("access", "\"access\"");
   }
 
-  private static String _where(W q, Connection c) throws SQLException {
-    if (q == null || c == null) {
+  /**
+   * the max size of the sql cache, the cache will be cleared if over the size
+   */
+  public static int                  SQLCACHESIZE = 1000;
+
+  /**
+   * the cache of the sql sentence, the key is the shape of the statement,
+   * (kind, table, dialect, where, orderby, columns ...), the prepared statement
+   * is reused by the poolPreparedStatements of the DBCP with the same sql
+   */
+  private static Map<String, String> sqls         = new ConcurrentHashMap<String, String>();
+  private static AtomicLong          hits         = new AtomicLong(0);
+  private static AtomicLong          misses       = new AtomicLong(0);
+
+  private static String _key(Object... ss) {
+    StringBuilder sb = new StringBuilder();
+    for (Object s : ss) {
+      if (sb.length() > 0) {
+        sb.append("|");
+      }
+      if (s != null) {
+        sb.append(s);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String _sql(String key) {
+    String sql = sqls.get(key);
+    if (sql == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return sql;
+  }
+
+  private static String _sql(String key, StringBuilder sb) {
+    String sql = sb.toString();
+    if (sqls.size() >= SQLCACHESIZE) {
+      sqls.clear();
+    }
+    sqls.put(key, sql);
+    return sql;
+  }
+
+  /**
+   * get the statistics of the sql cache.
+   *
+   * @return the JSON of {hits, misses, size, rate}, the rate is the percent of
+   *         the hits
+   */
+  public static JSON getSqlCacheStats() {
+    long h = hits.get();
+    long m = misses.get();
+    JSON jo = JSON.create();
+    jo.put("hits", h);
+    jo.put("misses", m);
+    jo.put("size", sqls.size());
+    jo.put("rate", h + m > 0 ? h * 100 / (h + m) : 0);
+    return jo;
+  }
+
+  private static String _where(W q, String dialect) {
+    if (q == null) {
       return null;
     }
 
-    if (isOracle(c)) {
+    if (isOracle(dialect)) {
       return q.where(oracle);
     }
 
     return q.where();
   }
 
-  private static String _orderby(W q, Connection c) throws SQLException {
-    if (q == null || c == null) {
+  private static String _orderby(W q, String dialect) {
+    if (q == null) {
       return null;
     }
 
-    if (isOracle(c)) {
+    if (isOracle(dialect)) {
       return q.orderby(oracle);
     }
 
@@ -121,7 +191,8 @@ public class RDSHelper extends Helper {
       StringBuilder sql = new StringBuilder();
       sql.append("update ").append(table).append(" set ").append(sets);
 
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
 
       if (where != null) {
@@ -144,6 +215,8 @@ public class RDSHelper extends Helper {
     } catch (Exception e) {
       if (log.isErrorEnabled())
         log.error(q, e);
+
+      _failed(c);
     } finally {
       close(c, p, r);
     }
@@ -211,16 +284,22 @@ public class RDSHelper extends Helper {
       /**
        * create the sql statement
        */
-      StringBuilder sql = new StringBuilder();
-      sql.append("delete from ").append(table);
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
 
-      if (where != null) {
-        sql.append(" where ").append(where);
+      String key = _key("delete", table, dialect, where);
+      String sql = _sql(key);
+      if (sql == null) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("delete from ").append(table);
+        if (!X.isEmpty(where)) {
+          sb.append(" where ").append(where);
+        }
+        sql = _sql(key, sb);
       }
 
-      p = c.prepareStatement(sql.toString());
+      p = c.prepareStatement(sql);
 
       if (args != null) {
         int order = 1;
@@ -238,6 +317,8 @@ public class RDSHelper extends Helper {
     } catch (Exception e) {
       if (log.isErrorEnabled())
         log.error(q, e);
+
+      _failed(c);
     } finally {
       close(p, c);
     }
@@ -246,84 +327,168 @@ public class RDSHelper extends Helper {
   }
 
   /**
-   * Gets the connection.
+   * Gets the connection of the default pool, the connection is held by the
+   * current thread, if required twice in same thread, it returns the same
+   * connection and increase the reference, MUST close it by close(...).
    * 
    * @return Connection
    * @throws SQLException
    *           the SQL exception
    */
   public static Connection getConnection() throws SQLException {
+    Holder h = local.get();
+    if (h != null && h.name == null) {
+      h.refs++;
+      return h.c;
+    }
+
     try {
-      long tid = Thread.currentThread().getId();
-      if (outdoor.size() > 0) {
-        Connection[] cs = null;
-        synchronized (outdoor) {
-          cs = outdoor.keySet().toArray(new Connection[outdoor.size()]);
-        }
-
-        for (Connection c : cs) {
-          Long[] dd = outdoor.get(c);
-          if (dd != null && dd[0] == tid) {
-            dd[2]++;
-            synchronized (outdoor) {
-              outdoor.put(c, dd);
-            }
-            return c;
-          }
-        }
-      }
-      Connection c = org.giiwa.core.bean.RDB.getConnection();
-      synchronized (outdoor) {
-        outdoor.put(c, new Long[] { tid, System.currentTimeMillis(), 0L });
+      Connection c = _open(null);
+      if (c != null && h == null) {
+        h = new Holder(null, c);
+        local.set(h);
+        holders.put(c, h);
       }
       return c;
     } catch (SQLException e1) {
-      /**
-       * print the fuck who hold the connections;
-       */
-      if (log.isErrorEnabled()) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("====================begin of thread dump=============================\r\n");
-        sb.append("outdoor:" + outdoor.size());
-
-        Map<Thread, StackTraceElement[]> m = Thread.getAllStackTraces();
-        for (Iterator<Thread> it = m.keySet().iterator(); it.hasNext();) {
-          Thread t = it.next();
-          long tid = t.getId();
-          Long[][] d0 = null;
-
-          // TODO, there is big performance issue
-          synchronized (outdoor) {
-            d0 = outdoor.values().toArray(new Long[outdoor.size()][]);
-          }
+      _dump();
+      throw e1;
+    }
+  }
 
-          for (Long[] dd : d0) {
-            if (dd[0] == tid) {
-              StackTraceElement[] st = m.get(t);
-              sb.append(t.getName()).append(" - ").append(t.getState()).append(" - ")
-                  .append((System.currentTimeMillis() - dd[1]) / 1000).append("ms/").append(dd[2]).append(t.toString())
-                  .append("\r\n");
-              for (StackTraceElement e : st) {
-                sb.append("\t").append(e.getClassName()).append(".").append(e.getMethodName()).append("(")
-                    .append(e.getLineNumber()).append(")").append("\r\n");
-              }
-              break;
-            }
-          }
+  /**
+   * open a scope of the connection of the default pool for current thread, all
+   * the RDSHelper calls in the scope (in same thread) share the connection,
+   * and the connection released when the scope closed. <br>
+   * 
+   * <pre>
+   * try (RDSHelper.Scope s = RDSHelper.scope()) {
+   *   ...
+   * }
+   * </pre>
+   * 
+   * @return the Scope
+   * @throws SQLException
+   *           the SQL exception
+   */
+  public static Scope scope() throws SQLException {
+    return new Scope(getConnection());
+  }
 
-        }
-        sb.append("====================end of thread dump=============================");
+  /**
+   * The {@code Scope} Class is the scope of the connection held by current
+   * thread, it's used by try-with-resources.
+   */
+  public static final class Scope implements AutoCloseable {
+
+    private Connection c;
+
+    private Scope(Connection c) {
+      this.c = c;
+    }
+
+    /**
+     * get the connection of the scope.
+     * 
+     * @return the Connection
+     */
+    public Connection getConnection() {
+      return c;
+    }
 
-        log.error(sb.toString());
+    /**
+     * release the connection, it will be closed if it's the outer scope.
+     */
+    @Override
+    public void close() {
+      if (c != null) {
+        RDSHelper.close(c);
+        c = null;
       }
-      throw e1;
     }
   }
 
-  private static Map<Connection, Long[]> outdoor = new HashMap<Connection, Long[]>();
+  /**
+   * The {@code Holder} Class is the connection held by the thread, it's only
+   * accessed by the thread except the diagnostics.
+   */
+  private static final class Holder {
+    final String     name;
+    final Connection c;
+    final Thread     thread   = Thread.currentThread();
+    final long       created  = System.currentTimeMillis();
+    int              refs     = 0;
+
+    /**
+     * in transaction, and marked as rollback
+     */
+    boolean          tx       = false;
+    boolean          rollback = false;
+
+    Holder(String name, Connection c) {
+      this.name = name;
+      this.c = c;
+    }
+  }
+
+  private static ThreadLocal<Holder>     local   = new ThreadLocal<Holder>();
+
+  /**
+   * the connections held by the threads, only for the leak diagnostics
+   */
+  private static Map<Connection, Holder> holders = new ConcurrentHashMap<Connection, Holder>();
+
+  /**
+   * the max number of the holders to dump, and the min interval between dumps
+   */
+  public static int                      DUMPMAX      = 10;
+  private static final long              DUMPINTERVAL = X.AMINUTE;
+  private static AtomicLong              dumped       = new AtomicLong(0);
 
   /**
-   * Gets the SQL connection by name.
+   * dump the oldest holders when the pool exhausted, at most once per minute.
+   */
+  private static void _dump() {
+    if (!log.isErrorEnabled()) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    long last = dumped.get();
+    if (now - last < DUMPINTERVAL || !dumped.compareAndSet(last, now)) {
+      return;
+    }
+
+    List<Holder> l1 = new ArrayList<Holder>(holders.values());
+    Collections.sort(l1, new Comparator<Holder>() {
+      @Override
+      public int compare(Holder o1, Holder o2) {
+        return Long.compare(o1.created, o2.created);
+      }
+    });
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("====================begin of connection dump=============================\r\n");
+    sb.append("held:" + l1.size()).append("\r\n");
+
+    for (int i = 0; i < l1.size() && i < DUMPMAX; i++) {
+      Holder h = l1.get(i);
+      Thread t = h.thread;
+      sb.append(t.getName()).append(" - ").append(t.getState()).append(" - ").append(now - h.created).append("ms/")
+          .append(h.refs).append(t.toString()).append("\r\n");
+      for (StackTraceElement e : t.getStackTrace()) {
+        sb.append("\t").append(e.getClassName()).append(".").append(e.getMethodName()).append("(")
+            .append(e.getLineNumber()).append(")").append("\r\n");
+      }
+    }
+    sb.append("====================end of connection dump=============================");
+
+    log.error(sb.toString());
+  }
+
+  /**
+   * Gets the SQL connection by name, the empty or "default" name is the
+   * default pool, which is held by current thread.
    *
    * @param name
    *          the name of the connection pool
@@ -332,9 +497,164 @@ public class RDSHelper extends Helper {
    *           the SQL exception
    */
   public static Connection getConnection(String name) throws SQLException {
+    if (_pool(name) == null) {
+      return getConnection();
+    }
+
+    Holder h = local.get();
+    if (h != null && name.equals(h.name)) {
+      // in the transaction of the db
+      h.refs++;
+      return h.c;
+    }
+
     return org.giiwa.core.bean.RDB.getConnection(name);
   }
 
+  /**
+   * detach the connection held by current thread (e.g. in the transaction),
+   * the calls after get their own connection and commit by themselves, until
+   * resume(...).
+   *
+   * @return the detached, passed to resume(...)
+   */
+  static Object suspend() {
+    Holder h = local.get();
+    local.remove();
+    return h;
+  }
+
+  /**
+   * attach the connection detached by suspend() to current thread again.
+   *
+   * @param h
+   *          the detached
+   */
+  static void resume(Object h) {
+    if (h != null) {
+      local.set((Holder) h);
+    }
+  }
+
+  /**
+   * mark the transaction of current thread as rollback if the write failed on
+   * the held connection, the write does not throw, so the transaction must not
+   * be committed with the partial writes.
+   */
+  private static void _failed(Connection c) {
+    Holder h = local.get();
+    if (h != null && h.tx && h.c == c) {
+      h.rollback = true;
+    }
+  }
+
+  /**
+   * the name of the pool held by the thread, the "default" of Helper is the
+   * default pool.
+   *
+   * @return the name, or null for the default pool
+   */
+  private static String _pool(String db) {
+    return X.isEmpty(db) || Helper.DEFAULT.equals(db) ? null : db;
+  }
+
+  /**
+   * open the connection of the pool, the default pool is "db.url" if
+   * configured, otherwise "db[default].url".
+   */
+  private static Connection _open(String name) throws SQLException {
+    if (name == null) {
+      return RDB.isConfigured() ? RDB.getConnection() : RDB.getConnection(Helper.DEFAULT);
+    }
+    return RDB.getConnection(name);
+  }
+
+  /**
+   * run the work in one transaction, the connection is held by current thread
+   * and shared by all the RDSHelper calls of the db in the work, commit once at
+   * the end, or rollback if the work throws exception. <br>
+   * if the thread is in the transaction of the same db, the work joins it.
+   *
+   * @param t
+   *          the work
+   * @param db
+   *          the db name, null for the default pool
+   * @return true if committed, false if rollback
+   */
+  public static boolean tx(Helper.Tx t, String db) {
+    String name = _pool(db);
+
+    Holder h = local.get();
+    boolean held = false;
+    boolean begin = false;
+
+    try {
+      if (h == null) {
+        Connection c = _open(name);
+        if (c == null) {
+          return false;
+        }
+        h = new Holder(name, c);
+        local.set(h);
+        holders.put(c, h);
+        held = true;
+      } else if (X.isSame(h.name, name)) {
+        h.refs++;
+        held = true;
+      } else {
+        log.error("the thread is holding the connection of [" + h.name + "], can not begin transaction of [" + db
+            + "]");
+        return false;
+      }
+
+      if (!h.tx) {
+        h.c.setAutoCommit(false);
+        h.tx = true;
+        begin = true;
+      }
+
+      t.run();
+
+      if (begin) {
+        if (h.rollback) {
+          h.c.rollback();
+        } else {
+          h.c.commit();
+        }
+      }
+      return !h.rollback;
+
+    } catch (Exception e) {
+      if (log.isErrorEnabled())
+        log.error(e.getMessage(), e);
+
+      if (held) {
+        h.rollback = true;
+        if (begin) {
+          try {
+            h.c.rollback();
+          } catch (SQLException e1) {
+            log.error(e1.getMessage(), e1);
+          }
+        }
+      }
+      return false;
+    } finally {
+      if (held) {
+        if (begin) {
+          h.tx = false;
+          h.rollback = false;
+          try {
+            h.c.setAutoCommit(true);
+          } catch (SQLException e1) {
+            log.error(e1.getMessage(), e1);
+          }
+        }
+        close(h.c);
+      }
+    }
+  }
+
   /**
    * Close the objects, the object cloud be ResultSet, Statement,
    * PreparedStatement, Connection <br>
@@ -357,26 +677,24 @@ public class RDSHelper extends Helper {
         } else if (o instanceof PreparedStatement) {
           ((PreparedStatement) o).close();
         } else if (o instanceof Connection) {
-          // local.remove();
           Connection c = (Connection) o;
-          Long[] dd = outdoor.get(c);
-          if (dd == null || dd[2] <= 0) {
-            try {
-              if (!c.getAutoCommit()) {
-                c.commit();
-              }
-            } catch (Exception e1) {
-            } finally {
-              c.close();
+          Holder h = local.get();
+          if (h != null && h.c == c) {
+            if (h.refs > 0) {
+              h.refs--;
+              continue;
             }
-            synchronized (outdoor) {
-              outdoor.remove(c);
-            }
-          } else {
-            dd[2]--;
-            synchronized (outdoor) {
-              outdoor.put(c, dd);
+            local.remove();
+          }
+          holders.remove(c);
+
+          try {
+            if (!c.getAutoCommit()) {
+              c.commit();
             }
+          } catch (Exception e1) {
+          } finally {
+            c.close();
           }
         }
       } catch (SQLException e) {
@@ -416,28 +734,34 @@ public class RDSHelper extends Helper {
       if (c == null)
         return false;
 
-      StringBuilder sql = new StringBuilder();
-      sql.append("select 1 from ").append(table);
-
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
 
-      if (where != null) {
-        sql.append(" where ").append(where);
-      }
+      String key = _key("exists", table, dialect, where);
+      String sql = _sql(key);
+      if (sql == null) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("select 1 from ").append(table);
 
-      if (isOracle(c)) {
-        if (where == null) {
-          sql.append(" where ");
+        if (!X.isEmpty(where)) {
+          sb.append(" where ").append(where);
+        }
+
+        if (isOracle(dialect)) {
+          if (X.isEmpty(where)) {
+            sb.append(" where ");
+          } else {
+            sb.append(" and ");
+          }
+          sb.append(" rownum=1");
         } else {
-          sql.append(" and ");
+          sb.append(" limit 1");
         }
-        sql.append(" rownum=1");
-      } else {
-        sql.append(" limit 1");
+        sql = _sql(key, sb);
       }
 
-      p = c.prepareStatement(sql.toString());
+      p = c.prepareStatement(sql);
 
       int order = 1;
       if (args != null) {
@@ -495,35 +819,41 @@ public class RDSHelper extends Helper {
       if (c == null)
         return -1;
 
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
+      Object[] args = q.args();
+
       /**
        * create the sql statement
        */
-      StringBuilder sql = new StringBuilder();
-      sql.append("update ").append(table).append(" set ");
+      String key = _key("update", table, dialect, where, sets.names());
+      String sql = _sql(key);
+      if (sql == null) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("update ").append(table).append(" set ");
 
-      boolean isoracle = isOracle(c);
+        boolean isoracle = isOracle(dialect);
 
-      StringBuilder s = new StringBuilder();
-      for (String name : sets.names()) {
-        if (s.length() > 0)
-          s.append(",");
-        if (isoracle && oracle.containsKey(name)) {
-          s.append(oracle.get(name));
-        } else {
-          s.append(name);
+        StringBuilder s = new StringBuilder();
+        for (String name : sets.names()) {
+          if (s.length() > 0)
+            s.append(",");
+          if (isoracle && oracle.containsKey(name)) {
+            s.append(oracle.get(name));
+          } else {
+            s.append(name);
+          }
+          s.append("=?");
         }
-        s.append("=?");
-      }
-      sql.append(s);
-
-      String where = _where(q, c);
-      Object[] args = q.args();
+        sb.append(s);
 
-      if (where != null) {
-        sql.append(" where ").append(where);
+        if (!X.isEmpty(where)) {
+          sb.append(" where ").append(where);
+        }
+        sql = _sql(key, sb);
       }
 
-      p = c.prepareStatement(sql.toString());
+      p = c.prepareStatement(sql);
 
       int order = 1;
       for (String name : sets.names()) {
@@ -548,6 +878,8 @@ public class RDSHelper extends Helper {
     } catch (Exception e) {
       if (log.isErrorEnabled())
         log.error(q + ",values=" + sets.toString(), e);
+
+      _failed(c);
     } finally {
       close(p, c);
     }
@@ -603,7 +935,7 @@ public class RDSHelper extends Helper {
     Connection c = null;
     PreparedStatement p = null;
     ResultSet r = null;
-    StringBuilder sql = new StringBuilder();
+    String sql = null;
 
     try {
       c = getConnection(db);
@@ -611,36 +943,43 @@ public class RDSHelper extends Helper {
       if (c == null)
         return false;
 
-      sql.append("select * from ").append(table);
-
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
-      String orderby = _orderby(q, c);
+      String orderby = _orderby(q, dialect);
 
-      if (where != null) {
-        sql.append(" where ").append(where);
-      }
+      String key = _key("load", table, dialect, where, orderby);
+      sql = _sql(key);
+      if (sql == null) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("select * from ").append(table);
 
-      if (isOracle(c)) {
-        if (where == null) {
-          sql.append(" where ");
-        } else {
-          sql.append(" and ");
+        if (!X.isEmpty(where)) {
+          sb.append(" where ").append(where);
         }
-        sql.append(" rownum=1");
 
-        if (!X.isEmpty(orderby)) {
-          sql.append(" ").append(orderby);
-        }
+        if (isOracle(dialect)) {
+          if (X.isEmpty(where)) {
+            sb.append(" where ");
+          } else {
+            sb.append(" and ");
+          }
+          sb.append(" rownum=1");
 
-      } else {
-        if (!X.isEmpty(orderby)) {
-          sql.append(" ").append(orderby);
+          if (!X.isEmpty(orderby)) {
+            sb.append(" ").append(orderby);
+          }
+
+        } else {
+          if (!X.isEmpty(orderby)) {
+            sb.append(" ").append(orderby);
+          }
+          sb.append(" limit 1");
         }
-        sql.append(" limit 1");
+        sql = _sql(key, sb);
       }
 
-      p = c.prepareStatement(sql.toString());
+      p = c.prepareStatement(sql);
 
       int order = 1;
       if (args != null) {
@@ -653,7 +992,7 @@ public class RDSHelper extends Helper {
 
       r = p.executeQuery();
       if (r.next()) {
-        b.load(r);
+        Binder.get(b.getClass()).mapping(r).load(b, r);
 
         return true;
       }
@@ -792,16 +1131,17 @@ public class RDSHelper extends Helper {
         sql.append("*");
       }
 
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(null, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
-      String orderby = _orderby(q, c);
+      String orderby = _orderby(q, dialect);
 
       sql.append(" from ").append(table);
       if (where != null) {
         sql.append(" where ").append(where);
       }
 
-      if (isOracle(c)) {
+      if (isOracle(dialect)) {
         if (limit > 0) {
           if (where == null) {
             sql.append(" where ");
@@ -811,7 +1151,7 @@ public class RDSHelper extends Helper {
           if (offset < 0) {
             offset = MAXROWS;
           }
-          sql.append(" rownum>").append(offset).append(" and rownum<=").append(offset + limit);
+          sql.append(" rownum>? and rownum<=?");
         }
         if (!X.isEmpty(orderby)) {
           sql.append(" ").append(orderby);
@@ -821,10 +1161,10 @@ public class RDSHelper extends Helper {
           sql.append(" ").append(orderby);
         }
         if (limit > 0) {
-          sql.append(" limit ").append(limit);
+          sql.append(" limit ?");
         }
         if (offset > 0) {
-          sql.append(" offset ").append(offset);
+          sql.append(" offset ?");
         }
       }
 
@@ -838,12 +1178,14 @@ public class RDSHelper extends Helper {
           setParameter(p, order++, o);
         }
       }
+      _page(p, order, dialect, offset, limit, limit > 0);
 
       r = p.executeQuery();
       List<T> list = new ArrayList<T>();
+      Binder.Mapping m = Binder.get(clazz).mapping(r);
       while (r.next()) {
         T b = clazz.newInstance();
-        b.load(r);
+        m.load(b, r);
         list.add(b);
       }
 
@@ -900,9 +1242,10 @@ public class RDSHelper extends Helper {
 
       StringBuilder sql = new StringBuilder();
       sql.append(select);
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(null, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
-      String orderby = _orderby(q, c);
+      String orderby = _orderby(q, dialect);
 
       if (where != null) {
         if (select.indexOf(" where ") < 0) {
@@ -912,7 +1255,7 @@ public class RDSHelper extends Helper {
         }
       }
 
-      if (isOracle(c)) {
+      if (isOracle(dialect)) {
         if (where == null) {
           sql.append(" where ");
         } else {
@@ -921,7 +1264,7 @@ public class RDSHelper extends Helper {
         if (offset < 0) {
           offset = MAXROWS;
         }
-        sql.append(" rownum>").append(offset).append(" and rownum<=").append(offset + limit);
+        sql.append(" rownum>? and rownum<=?");
         if (!X.isEmpty(orderby)) {
           sql.append(" ").append(orderby);
         }
@@ -930,10 +1273,10 @@ public class RDSHelper extends Helper {
           sql.append(" ").append(orderby);
         }
         if (limit > 0) {
-          sql.append(" limit ").append(limit);
+          sql.append(" limit ?");
         }
         if (offset > 0) {
-          sql.append(" offset ").append(offset);
+          sql.append(" offset ?");
         }
       }
 
@@ -947,12 +1290,14 @@ public class RDSHelper extends Helper {
           setParameter(p, order++, o);
         }
       }
+      _page(p, order, dialect, offset, limit, true);
 
       r = p.executeQuery();
       List<T> list = new ArrayList<T>();
+      Binder.Mapping m = Binder.get(clazz).mapping(r);
       while (r.next()) {
         T b = clazz.newInstance();
-        b.load(r);
+        m.load(b, r);
         list.add(b);
       }
 
@@ -1029,7 +1374,7 @@ public class RDSHelper extends Helper {
     Connection c = null;
     PreparedStatement p = null;
     ResultSet r = null;
-    StringBuilder sql = new StringBuilder();
+    String sql = null;
 
     try {
 
@@ -1038,46 +1383,50 @@ public class RDSHelper extends Helper {
       if (c == null)
         return null;
 
-      sql.append("select * from ").append(table);
-
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
-      String orderby = _orderby(q, c);
+      String orderby = _orderby(q, dialect);
 
-      if (where != null) {
-        sql.append(" where ").append(where);
-      }
+      String key = _key("load", table, dialect, where, orderby, limit > 0, offset > 0);
+      sql = _sql(key);
+      if (sql == null) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("select * from ").append(table);
 
-      if (isOracle(c)) {
-        if (where == null) {
-          sql.append(" where ");
-        } else {
-          sql.append(" and ");
+        if (!X.isEmpty(where)) {
+          sb.append(" where ").append(where);
         }
-        if (offset < 0) {
-          offset = MAXROWS;
-        }
-        sql.append(" rownum>").append(offset).append(" and rownum<=").append(offset + limit);
 
-        if (!X.isEmpty(orderby)) {
-          sql.append(" ").append(orderby);
-        }
-      } else {
-        if (!X.isEmpty(orderby)) {
-          sql.append(" ").append(orderby);
-        }
+        if (isOracle(dialect)) {
+          if (X.isEmpty(where)) {
+            sb.append(" where ");
+          } else {
+            sb.append(" and ");
+          }
+          sb.append(" rownum>? and rownum<=?");
 
-        if (limit > 0) {
-          sql.append(" limit ").append(limit);
-        }
-        if (offset > 0) {
-          sql.append(" offset ").append(offset);
+          if (!X.isEmpty(orderby)) {
+            sb.append(" ").append(orderby);
+          }
+        } else {
+          if (!X.isEmpty(orderby)) {
+            sb.append(" ").append(orderby);
+          }
+
+          if (limit > 0) {
+            sb.append(" limit ?");
+          }
+          if (offset > 0) {
+            sb.append(" offset ?");
+          }
         }
+        sql = _sql(key, sb);
       }
 
       Beans<T> rs = new Beans<T>();
 
-      p = c.prepareStatement(sql.toString());
+      p = c.prepareStatement(sql);
 
       int order = 1;
       if (args != null) {
@@ -1087,12 +1436,14 @@ public class RDSHelper extends Helper {
           setParameter(p, order++, o);
         }
       }
+      _page(p, order, dialect, offset, limit, true);
 
       r = p.executeQuery();
       rs.list = new ArrayList<T>();
+      Binder.Mapping m = Binder.get(clazz).mapping(r);
       while (r.next()) {
         T b = clazz.newInstance();
-        b.load(r);
+        m.load(b, r);
         rs.list.add(b);
       }
 
@@ -1114,6 +1465,191 @@ public class RDSHelper extends Helper {
     return null;
   }
 
+  /**
+   * bind the page bounds after the args of the query, the bounds are bound as
+   * parameters, so the statement is same for all the pages.
+   *
+   * @param rownum
+   *          the oracle "rownum" bounds are appended
+   */
+  private static void _page(PreparedStatement p, int order, String dialect, int offset, int limit, boolean rownum)
+      throws SQLException {
+    if (isOracle(dialect)) {
+      if (rownum) {
+        int n = offset < 0 ? MAXROWS : offset;
+        p.setInt(order++, n);
+        p.setInt(order++, n + limit);
+      }
+    } else {
+      if (limit > 0) {
+        p.setInt(order++, limit);
+      }
+      if (offset > 0) {
+        p.setInt(order++, offset);
+      }
+    }
+  }
+
+  /**
+   * the number of rows fetched in one round-trip by the cursor
+   */
+  public static int FETCHSIZE = 1000;
+
+  /**
+   * open a forward-only cursor for the data, the rows will be fetched by
+   * "FETCHSIZE" when iterating, the connection will be hold until the cursor
+   * closed. <br>
+   * the cursor has its own connection, not the one held by current thread, so
+   * the writes when iterating do not share the streaming connection (and do
+   * not see the cursor), and the cursor does not see the uncommitted writes of
+   * the transaction.
+   *
+   * @param <T>
+   *          the generic Bean Class
+   * @param table
+   *          the table name
+   * @param q
+   *          the query object
+   * @param clazz
+   *          the Bean Class
+   * @param db
+   *          the db name
+   * @return the Cursor, or null if failed
+   */
+  public static <T extends Bean> Cursor<T> stream(String table, W q, Class<T> clazz, String db) {
+
+    Connection c = null;
+    PreparedStatement p = null;
+    ResultSet r = null;
+    StringBuilder sql = new StringBuilder();
+
+    try {
+
+      c = _open(_pool(db));
+
+      if (c == null)
+        return null;
+
+      sql.append("select * from ").append(table);
+
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
+      Object[] args = q.args();
+      String orderby = _orderby(q, dialect);
+
+      if (!X.isEmpty(where)) {
+        sql.append(" where ").append(where);
+      }
+      if (!X.isEmpty(orderby)) {
+        sql.append(" ").append(orderby);
+      }
+
+      /**
+       * the postgresql ignores the fetchsize in autocommit mode, and the mysql
+       * only streams the rows when fetchsize=Integer.MIN_VALUE
+       */
+      c.setAutoCommit(false);
+      p = c.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      if (X.isSame(dialect, "mysql")) {
+        p.setFetchSize(Integer.MIN_VALUE);
+      } else {
+        p.setFetchSize(FETCHSIZE);
+      }
+
+      int order = 1;
+      if (args != null) {
+        for (int i = 0; i < args.length; i++) {
+          Object o = args[i];
+
+          setParameter(p, order++, o);
+        }
+      }
+
+      r = p.executeQuery();
+
+      if (log.isDebugEnabled())
+        log.debug("stream - collection=" + table + ", sql=" + sql);
+
+      return new RDSCursor<T>(clazz, r, p, c);
+
+    } catch (Exception e) {
+      if (log.isErrorEnabled())
+        log.error(sql, e);
+
+      close(r, p, c);
+    }
+    return null;
+  }
+
+  private static class RDSCursor<T extends Bean> implements Cursor<T> {
+
+    Class<T>          t;
+    ResultSet         r;
+    PreparedStatement p;
+    Connection        c;
+    Binder.Mapping    m;
+
+    boolean           fetched;
+    boolean           closed;
+
+    private RDSCursor(Class<T> t, ResultSet r, PreparedStatement p, Connection c) {
+      this.t = t;
+      this.r = r;
+      this.p = p;
+      this.c = c;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (closed) {
+        return false;
+      }
+
+      if (!fetched) {
+        try {
+          fetched = r.next();
+        } catch (SQLException e) {
+          // not the end of the data, the caller must know it's broken
+          close();
+          throw new RuntimeException(e.getMessage(), e);
+        }
+        if (!fetched) {
+          close();
+        }
+      }
+      return fetched;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      fetched = false;
+      try {
+        if (m == null) {
+          m = Binder.get(t).mapping(r);
+        }
+        T b = t.newInstance();
+        m.load(b, r);
+        return b;
+      } catch (Exception e) {
+        close();
+        throw new RuntimeException(e.getMessage(), e);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        RDSHelper.close(r, p, c);
+      }
+    }
+
+  }
+
   /**
    * get the data.
    * 
@@ -1130,10 +1666,36 @@ public class RDSHelper extends Helper {
    * @param clazz
    *          the Bean Class
    * @param c
-   *          the connection
+   *          the connection of the default pool
    * @return Beans
    */
   public static <T extends Bean> Beans<T> load(String table, W q, int offset, int limit, Class<T> clazz, Connection c) {
+    return load(table, q, offset, limit, clazz, c, null);
+  }
+
+  /**
+   * get the data by the connection of the db.
+   * 
+   * @param <T>
+   *          the generic Bean Class
+   * @param table
+   *          the table name
+   * @param q
+   *          the query object
+   * @param offset
+   *          the offset
+   * @param limit
+   *          the limit
+   * @param clazz
+   *          the Bean Class
+   * @param c
+   *          the connection
+   * @param db
+   *          the db name of the connection, null for the default pool
+   * @return Beans
+   */
+  public static <T extends Bean> Beans<T> load(String table, W q, int offset, int limit, Class<T> clazz, Connection c,
+      String db) {
     /**
      * create the sql statement
      */
@@ -1153,15 +1715,16 @@ public class RDSHelper extends Helper {
 
       StringBuilder sql = new StringBuilder();
       sql.append("select * from ").append(table);
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(_pool(db), c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
-      String orderby = _orderby(q, c);
+      String orderby = _orderby(q, dialect);
 
       if (where != null) {
         sql.append(" where ").append(where);
       }
 
-      if (isOracle(c)) {
+      if (isOracle(dialect)) {
         if (where == null) {
           sql.append(" where ");
         } else {
@@ -1201,9 +1764,10 @@ public class RDSHelper extends Helper {
 
       r = p.executeQuery();
       rs.list = new ArrayList<T>();
+      Binder.Mapping m = Binder.get(clazz).mapping(r);
       while (r.next()) {
         T b = clazz.newInstance();
-        b.load(r);
+        m.load(b, r);
         rs.list.add(b);
       }
 
@@ -1247,11 +1811,13 @@ public class RDSHelper extends Helper {
       if (c == null)
         return -1;
 
-      return insertTable(table, sets, c);
+      return insertTable(table, sets, c, db);
 
     } catch (Exception e) {
       if (log.isErrorEnabled())
         log.error(sets.toString(), e);
+
+      _failed(c);
     } finally {
       close(c);
     }
@@ -1259,7 +1825,7 @@ public class RDSHelper extends Helper {
 
   }
 
-  private static int insertTable(String table, V sets, Connection c) {
+  private static int insertTable(String table, V sets, Connection c, String db) {
 
     /**
      * insert it in database
@@ -1274,29 +1840,35 @@ public class RDSHelper extends Helper {
       /**
        * create the sql statement
        */
-      StringBuilder sql = new StringBuilder();
-      sql.append("insert into ").append(table).append(" (");
-      StringBuilder s = new StringBuilder();
-      int total = 0;
-      boolean isoracle = isOracle(c);
-      for (String name : sets.names()) {
-        if (s.length() > 0)
-          s.append(",");
-        if (isoracle && oracle.containsKey(name)) {
-          s.append(oracle.get(name));
-        } else {
-          s.append(name);
+      String dialect = RDB.getDialect(db, c);
+      String key = _key("insert", table, dialect, sets.names());
+      String sql = _sql(key);
+      if (sql == null) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("insert into ").append(table).append(" (");
+        StringBuilder s = new StringBuilder();
+        int total = 0;
+        boolean isoracle = isOracle(dialect);
+        for (String name : sets.names()) {
+          if (s.length() > 0)
+            s.append(",");
+          if (isoracle && oracle.containsKey(name)) {
+            s.append(oracle.get(name));
+          } else {
+            s.append(name);
+          }
+          total++;
         }
-        total++;
-      }
-      sql.append(s).append(") values( ");
+        sb.append(s).append(") values( ");
 
-      for (int i = 0; i < total - 1; i++) {
-        sql.append("?, ");
+        for (int i = 0; i < total - 1; i++) {
+          sb.append("?, ");
+        }
+        sb.append("?)");
+        sql = _sql(key, sb);
       }
-      sql.append("?)");
 
-      p = c.prepareStatement(sql.toString());
+      p = c.prepareStatement(sql);
 
       int order = 1;
       for (String name : sets.names()) {
@@ -1309,12 +1881,255 @@ public class RDSHelper extends Helper {
     } catch (Exception e) {
       if (log.isErrorEnabled())
         log.error(sets.toString(), e);
+
+      _failed(c);
     } finally {
       close(p);
     }
     return 0;
   }
 
+  /**
+   * batch insert the list of values into the table, the rows which have same
+   * columns will be inserted by one "executeBatch".
+   *
+   * @param table
+   *          the table name
+   * @param list
+   *          the list of values
+   * @param db
+   *          the db name
+   * @return the result of each row, 0: failed
+   */
+  public static int[] insertTable(String table, List<V> list, String db) {
+
+    int[] rs = new int[list.size()];
+
+    Connection c = null;
+    PreparedStatement p = null;
+
+    try {
+      c = getConnection(db);
+
+      if (c == null)
+        return rs;
+
+      String dialect = RDB.getDialect(db, c);
+      boolean isoracle = isOracle(dialect);
+
+      Map<List<String>, List<Integer>> groups = _group(list, null);
+      for (List<String> cols : groups.keySet()) {
+
+        /**
+         * create the sql statement
+         */
+        StringBuilder sql = new StringBuilder();
+        sql.append("insert into ").append(table).append(" (");
+        for (int i = 0; i < cols.size(); i++) {
+          if (i > 0)
+            sql.append(",");
+          String name = cols.get(i);
+          if (isoracle && oracle.containsKey(name)) {
+            sql.append(oracle.get(name));
+          } else {
+            sql.append(name);
+          }
+        }
+        sql.append(") values( ");
+        for (int i = 0; i < cols.size() - 1; i++) {
+          sql.append("?, ");
+        }
+        sql.append("?)");
+
+        List<Integer> rows = groups.get(cols);
+        try {
+          p = c.prepareStatement(sql.toString());
+
+          for (int i : rows) {
+            V v = list.get(i);
+            int order = 1;
+            for (String name : cols) {
+              setParameter(p, order++, v.value(name));
+            }
+            p.addBatch();
+          }
+
+          _result(rs, rows, p.executeBatch());
+
+        } catch (BatchUpdateException e) {
+          if (log.isErrorEnabled())
+            log.error(sql, e);
+          _result(rs, rows, e.getUpdateCounts());
+          _failed(c);
+        } catch (Exception e) {
+          if (log.isErrorEnabled())
+            log.error(sql, e);
+          _failed(c);
+        } finally {
+          close(p);
+          p = null;
+        }
+      }
+
+    } catch (Exception e) {
+      if (log.isErrorEnabled())
+        log.error(table, e);
+
+      _failed(c);
+    } finally {
+      close(p, c);
+    }
+    return rs;
+  }
+
+  /**
+   * batch update the table, the i-th query will be updated by the i-th values,
+   * the rows which have same query shape and same columns will be updated by
+   * one "executeBatch".
+   *
+   * @param table
+   *          the table name
+   * @param q
+   *          the list of query
+   * @param list
+   *          the list of values
+   * @param db
+   *          the db name
+   * @return the number of updated of each row
+   */
+  public static int[] updateTable(String table, List<W> q, List<V> list, String db) {
+
+    int[] rs = new int[list.size()];
+
+    Connection c = null;
+    PreparedStatement p = null;
+
+    try {
+      c = getConnection(db);
+
+      if (c == null)
+        return rs;
+
+      String dialect = RDB.getDialect(db, c);
+      boolean isoracle = isOracle(dialect);
+
+      Map<List<String>, List<Integer>> groups = _group(list, q);
+      for (List<String> cols : groups.keySet()) {
+
+        List<Integer> rows = groups.get(cols);
+        W q1 = q.get(rows.get(0));
+
+        /**
+         * create the sql statement, the last one of the cols is the where
+         */
+        StringBuilder sql = new StringBuilder();
+        sql.append("update ").append(table).append(" set ");
+        for (int i = 0; i < cols.size() - 1; i++) {
+          if (i > 0)
+            sql.append(",");
+          String name = cols.get(i);
+          if (isoracle && oracle.containsKey(name)) {
+            sql.append(oracle.get(name));
+          } else {
+            sql.append(name);
+          }
+          sql.append("=?");
+        }
+
+        String where = _where(q1, dialect);
+        if (!X.isEmpty(where)) {
+          sql.append(" where ").append(where);
+        }
+
+        try {
+          p = c.prepareStatement(sql.toString());
+
+          for (int i : rows) {
+            V v = list.get(i);
+            int order = 1;
+            for (int j = 0; j < cols.size() - 1; j++) {
+              setParameter(p, order++, v.value(cols.get(j)));
+            }
+
+            W q2 = q.get(i);
+            Object[] args = q2 == null ? null : q2.args();
+            if (args != null) {
+              for (Object o : args) {
+                setParameter(p, order++, o);
+              }
+            }
+            p.addBatch();
+          }
+
+          _result(rs, rows, p.executeBatch());
+
+        } catch (BatchUpdateException e) {
+          if (log.isErrorEnabled())
+            log.error(sql, e);
+          _result(rs, rows, e.getUpdateCounts());
+          _failed(c);
+        } catch (Exception e) {
+          if (log.isErrorEnabled())
+            log.error(sql, e);
+          _failed(c);
+        } finally {
+          close(p);
+          p = null;
+        }
+      }
+
+    } catch (Exception e) {
+      if (log.isErrorEnabled())
+        log.error(table, e);
+
+      _failed(c);
+    } finally {
+      close(p, c);
+    }
+    return rs;
+  }
+
+  /**
+   * group the rows by the sorted columns, and the "where" of the query if
+   * presented (appended as last one of the key).
+   */
+  private static Map<List<String>, List<Integer>> _group(List<V> list, List<W> q) {
+    Map<List<String>, List<Integer>> groups = new LinkedHashMap<List<String>, List<Integer>>();
+    for (int i = 0; i < list.size(); i++) {
+      List<String> cols = new ArrayList<String>(new TreeSet<String>(list.get(i).names()));
+      if (q != null) {
+        W q1 = q.get(i);
+        cols.add(q1 == null ? X.EMPTY : q1.where());
+      }
+
+      List<Integer> rows = groups.get(cols);
+      if (rows == null) {
+        rows = new ArrayList<Integer>();
+        groups.put(cols, rows);
+      }
+      rows.add(i);
+    }
+    return groups;
+  }
+
+  /**
+   * fill the result of executeBatch to the result of each row
+   */
+  private static void _result(int[] rs, List<Integer> rows, int[] counts) {
+    if (counts == null)
+      return;
+
+    for (int i = 0; i < counts.length && i < rows.size(); i++) {
+      int n = counts[i];
+      if (n == Statement.SUCCESS_NO_INFO) {
+        n = 1;
+      } else if (n < 0) {
+        n = 0;
+      }
+      rs[rows.get(i)] = n;
+    }
+  }
+
   /**
    * Load list result, string, integer, or base data type
    * 
@@ -1359,7 +2174,8 @@ public class RDSHelper extends Helper {
       StringBuilder sql = new StringBuilder();
       sql.append("select ").append(col).append(" from ").append(table);
 
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
 
       if (where != null) {
@@ -1434,14 +2250,15 @@ public class RDSHelper extends Helper {
       StringBuilder sql = new StringBuilder();
       // TODO, the col need to be transfer ? in oracle
       sql.append("select ").append(col).append(" from ").append(table);
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
 
       if (where != null) {
         sql.append(" where ").append(where);
       }
 
-      if (isOracle(c)) {
+      if (isOracle(dialect)) {
         if (where == null) {
           sql.append(" where ");
         } else {
@@ -1576,15 +2393,16 @@ public class RDSHelper extends Helper {
        */
       StringBuilder sql = new StringBuilder();
       sql.append("select ").append(col).append(" from ").append(table);
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(null, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
-      String orderby = _orderby(q, c);
+      String orderby = _orderby(q, dialect);
 
       if (where != null) {
         sql.append(" where ").append(where);
       }
 
-      if (isOracle(c)) {
+      if (isOracle(dialect)) {
         if (where == null) {
           sql.append(" where ");
         } else {
@@ -1672,15 +2490,16 @@ public class RDSHelper extends Helper {
        */
       StringBuilder sql = new StringBuilder();
       sql.append("select ").append(col).append(" from ").append(table);
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(null, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
-      String orderby = _orderby(q, c);
+      String orderby = _orderby(q, dialect);
 
       if (where != null) {
         sql.append(" where ").append(where);
       }
 
-      if (isOracle(c)) {
+      if (isOracle(dialect)) {
         if (where == null) {
           sql.append(" where ");
         } else {
@@ -1841,16 +2660,22 @@ public class RDSHelper extends Helper {
       if (c == null)
         return 0;
 
-      StringBuilder sum = new StringBuilder();
-      sum.append("select count(*) t from ").append(table);
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
 
-      if (where != null) {
-        sum.append(" where ").append(where);
+      String key = _key("count", table, dialect, where);
+      String sql = _sql(key);
+      if (sql == null) {
+        StringBuilder sum = new StringBuilder();
+        sum.append("select count(*) t from ").append(table);
+        if (!X.isEmpty(where)) {
+          sum.append(" where ").append(where);
+        }
+        sql = _sql(key, sum);
       }
 
-      p = c.prepareStatement(sum.toString());
+      p = c.prepareStatement(sql);
 
       int order = 1;
       if (args != null) {
@@ -1916,7 +2741,8 @@ public class RDSHelper extends Helper {
       StringBuilder sql = new StringBuilder();
       // TODO, the name need to be transfer? in oracle
       sql.append("select distinct(").append(name).append(") from ").append(table);
-      String where = _where(q, c);
+      String dialect = RDB.getDialect(db, c);
+      String where = _where(q, dialect);
       Object[] args = q.args();
 
       if (where != null) {
@@ -2079,16 +2905,14 @@ public class RDSHelper extends Helper {
       V v = V.create().copy(jo);
       String tablename = jo.getString("_table");
       v.remove("_table");
-      insertTable(tablename, v, c);
+      insertTable(tablename, v, c, null);
     } catch (Exception e) {
       log.error(e.getMessage(), e);
     }
   }
 
-  private static boolean isOracle(Connection c) throws SQLException {
-    String s = c.getMetaData().getDatabaseProductName();
-    String[] ss = X.split(s, "[ /]");
-    return X.isSame(ss[0], "oracle");
+  private static boolean isOracle(String dialect) {
+    return X.isSame(dialect, "oracle");
   }
 
 }
@@ -14,8 +14,12 @@
 */
 package org.giiwa.core.bean;
 
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -33,58 +37,136 @@ import org.giiwa.core.conf.Global;
  */
 public final class UID {
 
-  private static Log log = LogFactory.getLog(UID.class);
+  private static Log                             log    = LogFactory.getLog(UID.class);
+
+  /**
+   * the number of the sequence reserved in DB each time for a key
+   */
+  public static int                              BLOCK  = 1000;
+
+  /**
+   * the reserved block of each key
+   */
+  private static Map<String, Block>              blocks = new ConcurrentHashMap<String, Block>();
+
+  /**
+   * the lock of each key, only used when reserve new block
+   */
+  private static ConcurrentMap<String, Object>   locks  = new ConcurrentHashMap<String, Object>();
 
   /**
    * increase and get the unique sequence number by key, <br>
-   * the number=[system.code] + seq
+   * the number=[system.code] + seq. <br>
+   * the sequence is reserved from DB by block (BLOCK each time), and handed
+   * out in memory, so the sequence is unique but may be not continuous
+   * between nodes or restarts.
    *
    * @param key
    *          the key
    * @return long of the unique sequence
    */
-  public synchronized static long next(String key) {
+  public static long next(String key) {
 
     long prefix = Global.getLong("system.code", 0) * 10000000000000L;
 
-    try {
+    Block b = blocks.get(key);
+    while (true) {
+      if (b != null) {
+        long v = b.next.getAndIncrement();
+        if (v <= b.max) {
+          return prefix + v;
+        }
+      }
 
       /**
-       * remove cache
+       * reserve new block, only one thread for the key
        */
-      Cache.remove("global/" + key);
+      Object lock = locks.get(key);
+      if (lock == null) {
+        lock = new Object();
+        Object o = locks.putIfAbsent(key, lock);
+        if (o != null) {
+          lock = o;
+        }
+      }
+
+      synchronized (lock) {
+        Block b1 = blocks.get(key);
+        if (b1 == b) {
+          b1 = _reserve(key, BLOCK);
+          if (b1 == null) {
+            return -1;
+          }
+          blocks.put(key, b1);
+        }
+        b = b1;
+      }
+    }
+  }
 
-      Global f = Helper.load(key, Global.class);
+  /**
+   * reserve a block of the sequence in DB by one conditional update, out of
+   * the transaction of current thread, the block must be reserved even the
+   * transaction rolled back.
+   *
+   * @param key
+   *          the key
+   * @param n
+   *          the size of the block
+   * @return the Block, null if failed
+   */
+  private static Block _reserve(String key, int n) {
+    Object held = RDSHelper.suspend();
+    try {
+      while (true) {
+        /**
+         * remove cache
+         */
+        Cache.remove("global/" + key);
 
-      long v = 1;
-      if (f == null) {
-        String linkid = UID.random();
+        Global f = Helper.load(key, Global.class);
 
-        Helper.insert(V.create(X.ID, key).set("l", v).set("linkid", linkid), Global.class);
-        f = Helper.load(key, Global.class);
         if (f == null) {
-          log.error("occur error when create unique id, name=" + key);
-          return -1;
-        } else if (!X.isSame(f.getString("linkid"), linkid)) {
-          return next(key);
-        }
+          String linkid = UID.random();
 
-      } else {
-        v = f.getLong("l");
-        // log.debug("v=" + v + ", f=" + f);
+          Helper.insert(V.create(X.ID, key).set("l", (long) n).set("linkid", linkid), Global.class);
+          f = Helper.load(key, Global.class);
+          if (f == null) {
+            log.error("occur error when create unique id, name=" + key);
+            return null;
+          } else if (X.isSame(f.getString("linkid"), linkid)) {
+            return new Block(1, n);
+          }
 
-        if (Helper.update(W.create(X.ID, key).and("l", v), V.create("l", v + 1L), Global.class) <= 0) {
-          return next(key);
+        } else {
+          long v = f.getLong("l");
+          // log.debug("v=" + v + ", f=" + f);
+
+          if (Helper.update(W.create(X.ID, key).and("l", v), V.create("l", v + n), Global.class) > 0) {
+            return new Block(v + 1, v + n);
+          }
         }
-        v += 1;
       }
-
-      return prefix + v;
     } catch (Exception e) {
       log.error(e.getMessage(), e);
+    } finally {
+      RDSHelper.resume(held);
     }
 
-    return -1;
+    return null;
+  }
+
+  /**
+   * The {@code Block} Class is the range of the reserved sequence.
+   */
+  private static final class Block {
+    final AtomicLong next;
+    final long       max;
+
+    Block(long from, long to) {
+      this.next = new AtomicLong(from);
+      this.max = to;
+    }
   }
 
   /**
@@ -14,9 +14,17 @@
 */
 package org.giiwa.core.cache;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.logging.*;
 import org.giiwa.core.bean.X;
+import org.giiwa.core.conf.GlobalLock;
+import org.giiwa.core.json.JSON;
 
 /**
  * The {@code Cache} Class Cache used for cache object, the cache was grouped by
@@ -26,8 +34,13 @@ import org.giiwa.core.bean.X;
  * <pre>
  * cache.url=memcached://host:port
  * cache.group=demo
+ * cache.near=global/,role://
+ * cache.serializer=org.giiwa.core.cache.Codec
  * </pre>
  * 
+ * the keys start with the prefixes of "cache.near" are also cached in process,
+ * see {@code NearCache}
+ * 
  * @author joe
  *
  */
@@ -42,6 +55,11 @@ public final class Cache {
 
   private static ICacheSystem cacheSystem;
 
+  /**
+   * the in-process near cache, null if not configured
+   */
+  private static NearCache    near;
+
   /**
    * initialize the cache with configuration.
    *
@@ -66,6 +84,22 @@ public final class Cache {
     }
 
     GROUP = conf.getString("cache.group", "demo") + "://";
+
+    String s = conf.getString("cache.serializer", X.EMPTY);
+    ISerializer serializer = null;
+    if (!X.isEmpty(s)) {
+      try {
+        serializer = (ISerializer) Class.forName(s).newInstance();
+      } catch (Exception e) {
+        log.error("bad cache.serializer=" + s, e);
+      }
+    }
+    if (serializer == null) {
+      serializer = new Codec();
+    }
+    cacheSystem.setSerializer(serializer);
+
+    near = NearCache.create(conf, serializer);
   }
 
   /**
@@ -80,20 +114,36 @@ public final class Cache {
   @SuppressWarnings({ "unchecked" })
   public static <T> T get(String id) {
 
+    NearCache n = near;
+    if (n != null && !n.accept(id)) {
+      n = null;
+    }
+
     try {
 
-      id = GROUP + id;
+      long gen = 0;
+      if (n != null) {
+        Object r = n.get(id);
+        if (r != null) {
+          return (T) r;
+        }
+        gen = n.generation();
+      }
+
+      String key = GROUP + id;
 
       Object r = null;
       if (cacheSystem != null) {
-        r = cacheSystem.get(id);
+        r = cacheSystem.get(key);
+      }
+
+      if (n != null && r != null) {
+        n.set(id, r, gen);
       }
 
       return (T) r;
     } catch (Throwable e) {
-      if (cacheSystem != null) {
-        cacheSystem.delete(id);
-      }
+      remove(id);
       log.warn("nothing get from memcache by " + id + ", remove it!");
     }
     return null;
@@ -107,11 +157,21 @@ public final class Cache {
    * @return true, if successful
    */
   public static boolean remove(String id) {
-    id = GROUP + id;
+    NearCache n = near;
+    if (n != null) {
+      n.remove(id);
+    }
+
+    boolean ok = false;
     if (cacheSystem != null) {
-      return cacheSystem.delete(id);
+      ok = cacheSystem.delete(GROUP + id);
     }
-    return false;
+
+    if (n != null) {
+      // the old one may be set by get while deleting
+      n.remove(id);
+    }
+    return ok;
   }
 
   /**
@@ -126,16 +186,168 @@ public final class Cache {
    */
   public static boolean set(String id, Object data) {
 
-    id = GROUP + id;
+    NearCache n = near;
+    if (n != null) {
+      n.remove(id);
+    }
 
+    boolean ok = false;
     if (cacheSystem != null) {
       if (data == null) {
-        return cacheSystem.delete(id);
+        ok = cacheSystem.delete(GROUP + id);
       } else {
-        return cacheSystem.set(id, data);
+        ok = cacheSystem.set(GROUP + id, data);
       }
     }
-    return false;
+
+    if (n != null) {
+      // the old one may be set by get while setting
+      n.remove(id);
+    }
+    return ok;
+  }
+
+  /**
+   * get the objects by ids in one round-trip to the cache system, the expired
+   * object need to be checked by the caller as get(id).
+   * 
+   * @param <T>
+   *          the class
+   * @param ids
+   *          the ids of object in cache system
+   * @return the Map of id and object, the id is absent if not presented
+   */
+  @SuppressWarnings({ "unchecked" })
+  public static <T> Map<String, T> getAll(Collection<String> ids) {
+    Map<String, T> m = new HashMap<String, T>();
+    if (ids == null || ids.isEmpty()) {
+      return m;
+    }
+
+    NearCache n = near;
+    long gen = n == null ? 0 : n.generation();
+
+    try {
+      List<String> keys = new ArrayList<String>(ids.size());
+      for (String id : ids) {
+        if (n != null && n.accept(id)) {
+          Object r = n.get(id);
+          if (r != null) {
+            m.put(id, (T) r);
+            continue;
+          }
+        }
+        keys.add(GROUP + id);
+      }
+
+      if (cacheSystem != null && keys.size() > 0) {
+        Map<String, Object> m1 = cacheSystem.getAll(keys);
+        for (String key : m1.keySet()) {
+          String id = key.substring(GROUP.length());
+          Object r = m1.get(key);
+          if (n != null && n.accept(id)) {
+            n.set(id, r, gen);
+          }
+          m.put(id, (T) r);
+        }
+      }
+    } catch (Throwable e) {
+      log.warn("nothing get from memcache by " + ids, e);
+    }
+    return m;
+  }
+
+  /**
+   * cache the objects in one round-trip, the null value will be removed.
+   *
+   * @param data
+   *          the map of id and object
+   * @return true, if successful
+   */
+  public static boolean setAll(Map<String, ? extends Object> data) {
+    if (data == null || data.isEmpty()) {
+      return true;
+    }
+
+    NearCache n = near;
+
+    Map<String, Object> m = new HashMap<String, Object>();
+    for (String id : data.keySet()) {
+      if (n != null) {
+        n.remove(id);
+      }
+      m.put(GROUP + id, data.get(id));
+    }
+
+    boolean ok = false;
+    if (cacheSystem != null) {
+      ok = cacheSystem.setAll(m);
+    }
+
+    if (n != null) {
+      for (String id : data.keySet()) {
+        n.remove(id);
+      }
+    }
+    return ok;
+  }
+
+  /**
+   * remove the cached objects by ids in one round-trip.
+   *
+   * @param ids
+   *          the ids
+   * @return true, if successful
+   */
+  public static boolean removeAll(Collection<String> ids) {
+    if (ids == null || ids.isEmpty()) {
+      return true;
+    }
+
+    NearCache n = near;
+
+    List<String> keys = new ArrayList<String>(ids.size());
+    for (String id : ids) {
+      if (n != null) {
+        n.remove(id);
+      }
+      keys.add(GROUP + id);
+    }
+
+    boolean ok = false;
+    if (cacheSystem != null) {
+      ok = cacheSystem.deleteAll(keys);
+    }
+
+    if (n != null) {
+      for (String id : ids) {
+        n.remove(id);
+      }
+    }
+    return ok;
+  }
+
+  /**
+   * get the backend of the global lock that shared the cache system.
+   *
+   * @return the backend, null if the cache system can not be used for lock
+   */
+  public static GlobalLock.IBackend getLockBackend() {
+    if (cacheSystem instanceof RedisCache) {
+      return ((RedisCache) cacheSystem).lock(GROUP);
+    }
+    return null;
+  }
+
+  /**
+   * get the statistics of the near cache.
+   *
+   * @return the JSON of {size, hits, misses, evictions}, null if the near cache
+   *         not configured
+   */
+  public static JSON getNearStats() {
+    NearCache n = near;
+    return n == null ? null : n.stats();
   }
 
 }
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.giiwa.core.bean.Bean;
+import org.giiwa.core.bean.Column;
+import org.giiwa.core.json.JSON;
+import org.giiwa.framework.web.Module;
+
+/**
+ * The {@code Codec} Class is the default serializer of the cache, it encodes
+ * the Bean, JSON, Map, List and primitives in compact binary, and the others
+ * by java serialization. <br>
+ * the bytes starts with the version tag, and the bytes of java serialization
+ * (0xACED, the old entries) can be decoded also.
+ * 
+ * @author joe
+ *
+ */
+public class Codec implements ISerializer {
+
+  /**
+   * the version tag of the compact codec
+   */
+  private static final byte                    VERSION = 'G';
+  private static final byte                    V1      = 1;
+
+  private static final int                     NULL    = 0;
+  private static final int                     STRING  = 1;
+  private static final int                     INT     = 2;
+  private static final int                     LONG    = 3;
+  private static final int                     DOUBLE  = 4;
+  private static final int                     FLOAT   = 5;
+  private static final int                     BOOLEAN = 6;
+  private static final int                     BYTES   = 7;
+  private static final int                     MAP     = 8;
+  private static final int                     JSONMAP = 9;
+  private static final int                     LIST    = 10;
+  private static final int                     BEAN    = 11;
+  private static final int                     JAVA    = 12;
+
+  /**
+   * the Bean Class can be encoded compact or not
+   */
+  private static Map<Class<?>, Boolean>        compact = new ConcurrentHashMap<Class<?>, Boolean>();
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.giiwa.core.cache.ISerializer#encode(java.lang.Object)
+   */
+  public byte[] encode(Object o) throws IOException {
+    ByteArrayOutputStream bb = new ByteArrayOutputStream(256);
+    DataOutputStream out = new DataOutputStream(bb);
+    out.writeByte(VERSION);
+    out.writeByte(V1);
+    write(out, o);
+    out.flush();
+    return bb.toByteArray();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.giiwa.core.cache.ISerializer#decode(byte[])
+   */
+  public Object decode(byte[] bb) throws IOException, ClassNotFoundException {
+    if (bb == null || bb.length == 0) {
+      return null;
+    }
+
+    if (bb[0] == VERSION) {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bb, 2, bb.length - 2));
+      if (bb[1] == V1) {
+        return read(in);
+      }
+      throw new IOException("unknown version, v=" + bb[1]);
+    }
+
+    // the old entries by java serialization
+    return unserialize(bb);
+  }
+
+  private void write(DataOutputStream out, Object o) throws IOException {
+    if (o == null) {
+      out.writeByte(NULL);
+    } else if (o instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String) o);
+    } else if (o instanceof Integer) {
+      out.writeByte(INT);
+      out.writeInt((Integer) o);
+    } else if (o instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) o);
+    } else if (o instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) o);
+    } else if (o instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) o);
+    } else if (o instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) o);
+    } else if (o instanceof byte[]) {
+      out.writeByte(BYTES);
+      byte[] b = (byte[]) o;
+      out.writeInt(b.length);
+      out.write(b);
+    } else if (o instanceof Bean && isCompact(o.getClass())) {
+      Bean b = (Bean) o;
+      out.writeByte(BEAN);
+      writeString(out, o.getClass().getName());
+      out.writeLong(b.getExpiredTime());
+      writeMap(out, b.getAll());
+    } else if (o instanceof JSON) {
+      out.writeByte(JSONMAP);
+      writeMap(out, (JSON) o);
+    } else if (o.getClass() == HashMap.class) {
+      out.writeByte(MAP);
+      writeMap(out, (Map<?, ?>) o);
+    } else if (o.getClass() == ArrayList.class) {
+      List<?> l1 = (List<?>) o;
+      out.writeByte(LIST);
+      out.writeInt(l1.size());
+      for (Object o1 : l1) {
+        write(out, o1);
+      }
+    } else {
+      out.writeByte(JAVA);
+      byte[] b = serialize(o);
+      out.writeInt(b.length);
+      out.write(b);
+    }
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Object read(DataInputStream in) throws IOException, ClassNotFoundException {
+    int type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case INT:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case BOOLEAN:
+        return in.readBoolean();
+      case BYTES: {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return b;
+      }
+      case BEAN: {
+        Class<?> c = getClass(readString(in));
+        long expired = in.readLong();
+        try {
+          Bean b = (Bean) c.newInstance();
+          readMap(in, b);
+          b.setExpired(expired);
+          return b;
+        } catch (InstantiationException e) {
+          throw new IOException(c.getName(), e);
+        } catch (IllegalAccessException e) {
+          throw new IOException(c.getName(), e);
+        }
+      }
+      case JSONMAP:
+        return readMap(in, JSON.create());
+      case MAP:
+        return readMap(in, new HashMap());
+      case LIST: {
+        int n = in.readInt();
+        List<Object> l1 = new ArrayList<Object>(n);
+        for (int i = 0; i < n; i++) {
+          l1.add(read(in));
+        }
+        return l1;
+      }
+      case JAVA: {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return unserialize(b);
+      }
+    }
+    throw new IOException("unknown type, t=" + type);
+  }
+
+  private void writeMap(DataOutputStream out, Map<?, ?> m) throws IOException {
+    out.writeInt(m.size());
+    for (Map.Entry<?, ?> e : m.entrySet()) {
+      writeString(out, e.getKey().toString());
+      write(out, e.getValue());
+    }
+  }
+
+  private Map<String, Object> readMap(DataInputStream in, Map<String, Object> m)
+      throws IOException, ClassNotFoundException {
+    int n = in.readInt();
+    for (int i = 0; i < n; i++) {
+      String name = readString(in);
+      m.put(name, read(in));
+    }
+    return m;
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] b = s.getBytes("UTF-8");
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] b = new byte[in.readInt()];
+    in.readFully(b);
+    return new String(b, "UTF-8");
+  }
+
+  /**
+   * the Bean can be encoded compact only if it has public constructor without
+   * parameter, and all the fields are annotated by @Column or transient.
+   */
+  private static boolean isCompact(Class<?> c) {
+    Boolean b = compact.get(c);
+    if (b == null) {
+      b = true;
+      try {
+        if (!Modifier.isPublic(c.getModifiers()) || c.getConstructor() == null) {
+          b = false;
+        }
+      } catch (NoSuchMethodException e) {
+        b = false;
+      }
+
+      for (Class<?> c1 = c; b && c1 != Bean.class && c1 != null; c1 = c1.getSuperclass()) {
+        for (Field f : c1.getDeclaredFields()) {
+          int m = f.getModifiers();
+          if ((m & (Modifier.STATIC | Modifier.TRANSIENT)) == 0 && f.getAnnotation(Column.class) == null) {
+            b = false;
+            break;
+          }
+        }
+      }
+      compact.put(c, b);
+    }
+    return b;
+  }
+
+  private static Class<?> getClass(String name) throws ClassNotFoundException {
+    if (Module.classLoader != null) {
+      return Class.forName(name, true, Module.classLoader);
+    }
+    return Class.forName(name);
+  }
+
+  private static byte[] serialize(Object o) throws IOException {
+    if (!(o instanceof Serializable)) {
+      throw new IOException("not serializable, " + o.getClass());
+    }
+    ByteArrayOutputStream bb = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bb);
+    out.writeObject(o);
+    out.close();
+    return bb.toByteArray();
+  }
+
+  private static Object unserialize(byte[] bb) throws IOException, ClassNotFoundException {
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bb));
+    try {
+      return in.readObject();
+    } finally {
+      in.close();
+    }
+  }
+
+}
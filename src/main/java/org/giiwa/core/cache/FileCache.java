@@ -29,10 +29,12 @@ import org.giiwa.framework.web.Model;
 class FileCache implements ICacheSystem {
 
   /** The log. */
-  static Log     log = LogFactory.getLog(FileCache.class);
+  static Log          log        = LogFactory.getLog(FileCache.class);
 
   /** The root. */
-  private String root;
+  private String      root;
+
+  private ISerializer serializer = new Codec();
 
   /**
    * Inits the.
@@ -44,7 +46,11 @@ class FileCache implements ICacheSystem {
   public static ICacheSystem create(Configuration conf) {
     FileCache f = new FileCache();
     f.root = Model.GIIWA_HOME + "/temp/_cache/";
-    f.cache_size = conf.getInt("file.cache.size", 10000);
+    int size = conf.getInt("file.cache.size", 10000);
+    f.segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      f.segments[i] = new Segment(Math.max(1, size / SEGMENTS));
+    }
     return f;
   }
 
@@ -55,35 +61,41 @@ class FileCache implements ICacheSystem {
    *          the id
    * @return the object
    */
-  public synchronized Object get(String id) {
+  public Object get(String id) {
 
     /**
      * test cache first
      */
     try {
-      if (cache.containsKey(id)) {
-        return fromBytes(read(id));
-      } else {
-        /**
-         * if not in cache, then read from file
-         */
-        String path = path(id);
-        if (new File(path).exists()) {
-          FileInputStream in = null;
-          try {
-            in = new FileInputStream(path);
-            byte[] b = new byte[in.available()];
-            in.read(b);
+      byte[] b = null;
+      Segment g = segment(id);
+      synchronized (g) {
+        b = g.get(id);
+        if (b == null) {
+          /**
+           * if not in cache, then read from file
+           */
+          File f = new File(path(id));
+          if (f.exists()) {
+            FileInputStream in = null;
+            try {
+              in = new FileInputStream(f);
+              b = new byte[in.available()];
+              in.read(b);
 
-            save(id, b);
-            return fromBytes(b);
-          } finally {
-            if (in != null) {
-              in.close();
+              g.put(id, b);
+            } finally {
+              if (in != null) {
+                in.close();
+              }
             }
           }
         }
       }
+
+      if (b != null) {
+        return serializer.decode(b);
+      }
     } catch (Exception e) {
     }
     return null;
@@ -98,32 +110,35 @@ class FileCache implements ICacheSystem {
    *          the o
    * @return true, if successful
    */
-  public synchronized boolean set(String id, Object o) {
+  public boolean set(String id, Object o) {
     try {
       if (o == null) {
         return delete(id);
       } else {
-        byte[] b = toBytes(o);
+        byte[] b = serializer.encode(o);
 
-        /**
-         * cache it
-         */
-        save(id, b);
+        Segment g = segment(id);
+        synchronized (g) {
+          /**
+           * cache it
+           */
+          g.put(id, b);
 
-        /**
-         * write to file
-         */
-        String path = path(id);
-        new File(path).getParentFile().mkdirs();
-        FileOutputStream out = null;
-        try {
-          out = new FileOutputStream(path);
-          out.write(b);
-          out.flush();
-          return true;
-        } finally {
-          if (out != null) {
-            out.close();
+          /**
+           * write to file
+           */
+          File f = new File(path(id));
+          f.getParentFile().mkdirs();
+          FileOutputStream out = null;
+          try {
+            out = new FileOutputStream(f);
+            out.write(b);
+            out.flush();
+            return true;
+          } finally {
+            if (out != null) {
+              out.close();
+            }
           }
         }
       }
@@ -134,61 +149,68 @@ class FileCache implements ICacheSystem {
   }
 
   /**
-   * To bytes.
+   * get the objects, the file cache is local, so just a loop.
    *
-   * @param o
-   *          the o
-   * @return the byte[]
-   * @throws IOException
-   *           Signals that an I/O exception has occurred.
+   * @param ids
+   *          the ids
+   * @return the map
    */
-  private static byte[] toBytes(Object o) throws IOException {
-    ByteArrayOutputStream out = null;
-    ObjectOutputStream d = null;
-
-    try {
-      out = new ByteArrayOutputStream();
-      d = new ObjectOutputStream(out);
-      d.writeObject(o);
-      d.flush();
-      return out.toByteArray();
-    } finally {
-      if (d != null) {
-        d.close();
-      }
-      if (out != null) {
-        out.close();
+  public Map<String, Object> getAll(Collection<String> ids) {
+    Map<String, Object> m = new HashMap<String, Object>();
+    if (ids != null) {
+      for (String id : ids) {
+        Object o = get(id);
+        if (o != null) {
+          m.put(id, o);
+        }
       }
     }
-
+    return m;
   }
 
   /**
-   * From bytes.
+   * set the objects one by one.
    *
-   * @param b
-   *          the b
-   * @return the object
-   * @throws IOException
-   *           Signals that an I/O exception has occurred.
-   * @throws ClassNotFoundException
-   *           the class not found exception
+   * @param data
+   *          the data
+   * @return true, if all successful
    */
-  private static Object fromBytes(byte[] b) throws IOException, ClassNotFoundException {
-    ByteArrayInputStream in = null;
-    ObjectInputStream d = null;
-    try {
-      in = new ByteArrayInputStream(b);
-      d = new ObjectInputStream(in);
-      return d.readObject();
-    } finally {
-      if (d != null) {
-        d.close();
+  public boolean setAll(Map<String, Object> data) {
+    boolean ok = true;
+    if (data != null) {
+      for (String id : data.keySet()) {
+        ok = set(id, data.get(id)) && ok;
       }
-      if (in != null) {
-        in.close();
+    }
+    return ok;
+  }
+
+  /**
+   * delete the ids one by one.
+   *
+   * @param ids
+   *          the ids
+   * @return true, if successful
+   */
+  public boolean deleteAll(Collection<String> ids) {
+    boolean ok = true;
+    if (ids != null) {
+      for (String id : ids) {
+        ok = delete(id) && ok;
       }
     }
+    return ok;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * org.giiwa.core.cache.ICacheSystem#setSerializer(org.giiwa.core.cache.
+   * ISerializer)
+   */
+  public void setSerializer(ISerializer s) {
+    this.serializer = s;
   }
 
   /**
@@ -198,10 +220,12 @@ class FileCache implements ICacheSystem {
    *          the id
    * @return true, if successful
    */
-  public synchronized boolean delete(String id) {
-    new File(path(id)).delete();
-    cache.remove(id);
-    return queue.remove(id);
+  public boolean delete(String id) {
+    Segment g = segment(id);
+    synchronized (g) {
+      new File(path(id)).delete();
+      return g.remove(id) != null;
+    }
   }
 
   /**
@@ -223,50 +247,43 @@ class FileCache implements ICacheSystem {
   }
 
   /**
-   * Read.
+   * get the segment of the id, the segment is the lock and the LRU of the ids
+   * in same bucket.
    *
    * @param id
    *          the id
-   * @return the byte[]
+   * @return the Segment
    */
-  private byte[] read(String id) {
-    byte[] b = cache.get(id);
-
-    // set to last
-    if (queue.contains(id)) {
-      queue.remove(id);
-      queue.add(id);
-    }
-    return b;
+  private Segment segment(String id) {
+    int h = id.hashCode();
+    h ^= (h >>> 16);
+    return segments[h & (SEGMENTS - 1)];
   }
 
   /**
-   * Save.
-   *
-   * @param id
-   *          the id
-   * @param b
-   *          the b
+   * The {@code Segment} Class is the LRU (access order) of the bucket, MUST be
+   * accessed in the lock of itself.
    */
-  private void save(String id, byte[] b) {
-    cache.put(id, b);
+  private static final class Segment extends LinkedHashMap<String, byte[]> {
 
-    // set to last
-    queue.remove(id);
-    queue.add(id);
+    private static final long serialVersionUID = 1L;
 
-    while (queue.size() > cache_size) {
-      id = queue.remove(0);
-      cache.remove(id);
+    private final int         max;
+
+    Segment(int max) {
+      super(16, 0.75f, true);
+      this.max = max;
     }
-  }
 
-  /** The cache_size. */
-  int                 cache_size = 1000;
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+      return size() > max;
+    }
+  }
 
-  /** The cache. */
-  Map<String, byte[]> cache      = new HashMap<String, byte[]>();
+  /** The number of the segments, MUST be power of 2. */
+  private static final int SEGMENTS = 16;
 
-  /** The queue. */
-  List<String>        queue      = new ArrayList<String>();
+  /** The segments. */
+  private Segment[]        segments;
 }
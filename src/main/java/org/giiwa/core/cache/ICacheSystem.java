@@ -14,6 +14,9 @@
 */
 package org.giiwa.core.cache;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface ICacheSystem {
 
   /**
@@ -45,4 +48,39 @@ public interface ICacheSystem {
    */
   boolean set(String id, Object data);
 
+  /**
+   * get the objects of the ids in one round-trip.
+   *
+   * @param ids
+   *          the ids
+   * @return the map of id and object, the id is absent if not found
+   */
+  Map<String, Object> getAll(Collection<String> ids);
+
+  /**
+   * set the objects in one round-trip.
+   *
+   * @param data
+   *          the map of id and object
+   * @return true, if all successful
+   */
+  boolean setAll(Map<String, Object> data);
+
+  /**
+   * delete the ids in one round-trip.
+   *
+   * @param ids
+   *          the ids
+   * @return true, if successful
+   */
+  boolean deleteAll(Collection<String> ids);
+
+  /**
+   * Sets the serializer that encode/decode the object.
+   *
+   * @param s
+   *          the serializer
+   */
+  void setSerializer(ISerializer s);
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.cache;
+
+import java.io.IOException;
+
+/**
+ * The {@code ISerializer} Interface used to encode/decode the object stored in
+ * the cache system, configured by "cache.serializer" (class name), the
+ * default is {@code Codec}.
+ * 
+ * @author joe
+ *
+ */
+public interface ISerializer {
+
+  /**
+   * encode the object to bytes.
+   *
+   * @param o
+   *          the object
+   * @return the bytes
+   * @throws IOException
+   *           the IO exception
+   */
+  byte[] encode(Object o) throws IOException;
+
+  /**
+   * decode the bytes to object.
+   *
+   * @param bb
+   *          the bytes
+   * @return the object
+   * @throws IOException
+   *           the IO exception
+   * @throws ClassNotFoundException
+   *           the class not found exception
+   */
+  Object decode(byte[] bb) throws IOException, ClassNotFoundException;
+
+}
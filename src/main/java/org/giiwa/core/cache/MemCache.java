@@ -14,6 +14,10 @@
 */
 package org.giiwa.core.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.logging.*;
 
@@ -27,10 +31,12 @@ import com.whalin.MemCached.SockIOPool;
 class MemCache implements ICacheSystem {
 
   /** The log. */
-  static Log              log = LogFactory.getLog(MemCache.class);
+  static Log              log        = LogFactory.getLog(MemCache.class);
 
   private MemCachedClient memCachedClient;
 
+  private ISerializer     serializer = new Codec();
+
   /**
    * Inits the.
    *
@@ -67,8 +73,22 @@ class MemCache implements ICacheSystem {
    *          the id
    * @return the object
    */
-  public synchronized Object get(String id) {
-    return memCachedClient.get(id);
+  public Object get(String id) {
+    return decode(id, memCachedClient.get(id));
+  }
+
+  private Object decode(String id, Object o) {
+    if (o instanceof byte[]) {
+      try {
+        return serializer.decode((byte[]) o);
+      } catch (Exception e) {
+        log.warn("can not decode, id=" + id, e);
+        return null;
+      }
+    }
+
+    // the old entries, serialized by the client
+    return o;
   }
 
   /**
@@ -80,12 +100,12 @@ class MemCache implements ICacheSystem {
    *          the o
    * @return true, if successful
    */
-  public synchronized boolean set(String id, Object o) {
+  public boolean set(String id, Object o) {
     try {
       if (o == null) {
         return delete(id);
       } else {
-        return memCachedClient.set(id, o);
+        return memCachedClient.set(id, serializer.encode(o));
       }
     } catch (Exception e) {
       log.error(e.getMessage(), e);
@@ -100,8 +120,78 @@ class MemCache implements ICacheSystem {
    *          the id
    * @return true, if successful
    */
-  public synchronized boolean delete(String id) {
+  public boolean delete(String id) {
     return memCachedClient.delete(id);
   }
 
+  /**
+   * get the objects by getMulti.
+   *
+   * @param ids
+   *          the ids
+   * @return the map
+   */
+  public Map<String, Object> getAll(Collection<String> ids) {
+    Map<String, Object> m = new HashMap<String, Object>();
+    if (ids == null || ids.isEmpty()) {
+      return m;
+    }
+
+    Map<String, Object> m1 = memCachedClient.getMulti(ids.toArray(new String[ids.size()]));
+    if (m1 != null) {
+      for (String id : m1.keySet()) {
+        Object o = decode(id, m1.get(id));
+        if (o != null) {
+          m.put(id, o);
+        }
+      }
+    }
+    return m;
+  }
+
+  /**
+   * set the objects, the client has no multi-set, set one by one.
+   *
+   * @param data
+   *          the data
+   * @return true, if all successful
+   */
+  public boolean setAll(Map<String, Object> data) {
+    boolean ok = true;
+    if (data != null) {
+      for (String id : data.keySet()) {
+        ok = set(id, data.get(id)) && ok;
+      }
+    }
+    return ok;
+  }
+
+  /**
+   * delete the ids one by one.
+   *
+   * @param ids
+   *          the ids
+   * @return true, if successful
+   */
+  public boolean deleteAll(Collection<String> ids) {
+    boolean ok = true;
+    if (ids != null) {
+      for (String id : ids) {
+        ok = delete(id) && ok;
+      }
+    }
+    return ok;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * org.giiwa.core.cache.ICacheSystem#setSerializer(org.giiwa.core.cache.
+   * ISerializer)
+   */
+  public void setSerializer(ISerializer s) {
+    this.serializer = s;
+  }
+
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.giiwa.core.bean.X;
+import org.giiwa.core.json.JSON;
+
+/**
+ * The {@code NearCache} Class is the in-process cache in front of the cache
+ * system, it's bounded by size and TTL, and only for the keys that start with
+ * the configured prefixes <br>
+ * configuration in giiwa.properties
+ * 
+ * <pre>
+ * cache.near=global/,role://
+ * cache.near.size=10000
+ * cache.near.ttl=10000
+ * </pre>
+ * 
+ * the object is kept encoded by the serializer of the cache system, each get
+ * decodes a new copy, so the callers do not share the object; other nodes may
+ * update the cache system, so the TTL should be short, and the keys which are
+ * updated often (e.g. "session/") should not be near cached.
+ * 
+ * @author joe
+ *
+ */
+final class NearCache {
+
+  private static Log               log       = LogFactory.getLog(NearCache.class);
+
+  private final String[]           prefixes;
+  private final int                max;
+  private final long               ttl;
+  private final ISerializer        serializer;
+
+  private final Map<String, Entry> cache     = new ConcurrentHashMap<String, Entry>();
+
+  private final AtomicLong         hits      = new AtomicLong(0);
+  private final AtomicLong         misses    = new AtomicLong(0);
+  private final AtomicLong         evictions = new AtomicLong(0);
+
+  /** increased when any removed, the object got before is not set */
+  private final AtomicLong         removed   = new AtomicLong(0);
+
+  /**
+   * create the near cache by the configuration.
+   *
+   * @param conf
+   *          the configuration
+   * @param serializer
+   *          the serializer of the cache system
+   * @return the NearCache, null if not configured "cache.near"
+   */
+  static NearCache create(Configuration conf, ISerializer serializer) {
+    String s = conf.getString("cache.near", X.EMPTY);
+    if (X.isEmpty(s)) {
+      return null;
+    }
+
+    String[] ss = X.split(s, "[,;]");
+    if (ss == null || ss.length == 0) {
+      return null;
+    }
+
+    return new NearCache(ss, conf.getInt("cache.near.size", 10000), conf.getLong("cache.near.ttl", 10000),
+        serializer);
+  }
+
+  private NearCache(String[] prefixes, int max, long ttl, ISerializer serializer) {
+    this.prefixes = prefixes;
+    this.max = max;
+    this.ttl = ttl;
+    this.serializer = serializer;
+  }
+
+  /**
+   * test the id is cached in near cache.
+   *
+   * @param id
+   *          the id without group
+   * @return true if the id starts with one of the prefixes
+   */
+  boolean accept(String id) {
+    for (String s : prefixes) {
+      if (id.startsWith(s)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * get the object.
+   *
+   * @param id
+   *          the id
+   * @return the new copy of the object, null if not presented or expired
+   */
+  Object get(String id) {
+    Entry e = cache.get(id);
+    if (e != null) {
+      if (e.expired > System.currentTimeMillis()) {
+        try {
+          Object o = serializer.decode(e.data);
+          hits.incrementAndGet();
+          return o;
+        } catch (Exception e1) {
+          log.warn("bad near cache, id=" + id, e1);
+        }
+      }
+
+      if (cache.remove(id) != null) {
+        evictions.incrementAndGet();
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * get the generation, it should be got before getting the object from the
+   * cache system, and passed to set(...).
+   *
+   * @return the generation
+   */
+  long generation() {
+    return removed.get();
+  }
+
+  /**
+   * set the object got from the cache system, dropped if any removed since the
+   * generation, as the object may be updated while getting.
+   *
+   * @param id
+   *          the id
+   * @param data
+   *          the object
+   * @param gen
+   *          the generation before getting
+   */
+  void set(String id, Object data, long gen) {
+    if (removed.get() != gen) {
+      return;
+    }
+
+    byte[] bb;
+    try {
+      bb = serializer.encode(data);
+    } catch (Exception e) {
+      log.warn("can not encode, id=" + id, e);
+      cache.remove(id);
+      return;
+    }
+
+    if (cache.size() >= max) {
+      _evict();
+    }
+    Entry e = new Entry(bb, System.currentTimeMillis() + ttl);
+    cache.put(id, e);
+
+    if (removed.get() != gen) {
+      // removed while setting
+      cache.remove(id, e);
+    }
+  }
+
+  /**
+   * remove the object.
+   *
+   * @param id
+   *          the id
+   */
+  void remove(String id) {
+    removed.incrementAndGet();
+    cache.remove(id);
+  }
+
+  /**
+   * remove the expired, and 1/8 of the others if still full.
+   */
+  private void _evict() {
+    long now = System.currentTimeMillis();
+    int n = 0;
+    for (Iterator<Entry> it = cache.values().iterator(); it.hasNext();) {
+      Entry e = it.next();
+      if (e.expired <= now) {
+        it.remove();
+        n++;
+      }
+    }
+
+    if (cache.size() >= max) {
+      int m = Math.max(1, max / 8);
+      for (Iterator<Entry> it = cache.values().iterator(); it.hasNext() && m > 0; m--) {
+        it.next();
+        it.remove();
+        n++;
+      }
+    }
+
+    evictions.addAndGet(n);
+  }
+
+  /**
+   * get the statistics.
+   *
+   * @return the JSON of {size, hits, misses, evictions}
+   */
+  JSON stats() {
+    JSON jo = JSON.create();
+    jo.put("size", cache.size());
+    jo.put("hits", hits.get());
+    jo.put("misses", misses.get());
+    jo.put("evictions", evictions.get());
+    return jo;
+  }
+
+  private static final class Entry {
+    final byte[] data;
+    final long   expired;
+
+    Entry(byte[] data, long expired) {
+      this.data = data;
+      this.expired = expired;
+    }
+  }
+
+}
@@ -14,12 +14,11 @@
 */
 package org.giiwa.core.cache;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.logging.*;
@@ -27,7 +26,9 @@ import org.giiwa.core.bean.X;
 
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.ShardedJedisPipeline;
 import redis.clients.jedis.ShardedJedisPool;
 
 /**
@@ -37,11 +38,12 @@ import redis.clients.jedis.ShardedJedisPool;
 class RedisCache implements ICacheSystem {
 
   /** The log. */
-  static Log               log = LogFactory.getLog(RedisCache.class);
+  static Log               log        = LogFactory.getLog(RedisCache.class);
 
-  private ShardedJedis     jedis;
   private ShardedJedisPool shardedJedisPool;
 
+  private ISerializer      serializer = new Codec();
+
   /**
    * Inits the.
    *
@@ -61,8 +63,8 @@ class RedisCache implements ICacheSystem {
     RedisCache r = new RedisCache();
 
     JedisPoolConfig config = new JedisPoolConfig();
-    config.setMaxTotal(20);
-    config.setMaxIdle(5);
+    config.setMaxTotal(conf.getInt("cache.conns", 100));
+    config.setMaxIdle(20);
     config.setMaxWaitMillis(1000l);
     config.setTestOnBorrow(false);
 
@@ -70,11 +72,21 @@ class RedisCache implements ICacheSystem {
     shards.add(new JedisShardInfo(host, port, "master"));
 
     r.shardedJedisPool = new ShardedJedisPool(config, shards);
-    r.jedis = r.shardedJedisPool.getResource();
 
     return r;
   }
 
+  /**
+   * create the backend of the global lock on the same pool.
+   *
+   * @param prefix
+   *          the prefix of the keys
+   * @return the RedisLock
+   */
+  RedisLock lock(String prefix) {
+    return new RedisLock(shardedJedisPool, prefix);
+  }
+
   /**
    * get object.
    *
@@ -82,10 +94,21 @@ class RedisCache implements ICacheSystem {
    *          the id
    * @return the object
    */
-  public synchronized Object get(String id) {
-    byte[] bb = jedis.get(id.getBytes());
+  public Object get(String id) {
+    byte[] bb = null;
+    ShardedJedis jedis = shardedJedisPool.getResource();
+    try {
+      bb = jedis.get(id.getBytes());
+    } finally {
+      jedis.close();
+    }
+
     if (bb != null) {
-      return unserialize(bb);
+      try {
+        return serializer.decode(bb);
+      } catch (Exception e) {
+        log.warn("can not decode, id=" + id, e);
+      }
     }
     return null;
   }
@@ -99,12 +122,18 @@ class RedisCache implements ICacheSystem {
    *          the o
    * @return true, if successful
    */
-  public synchronized boolean set(String id, Object o) {
+  public boolean set(String id, Object o) {
     try {
       if (o == null) {
         return delete(id);
       } else {
-        return jedis.set(id.getBytes(), serialize(o)) != null;
+        byte[] bb = serializer.encode(o);
+        ShardedJedis jedis = shardedJedisPool.getResource();
+        try {
+          return jedis.set(id.getBytes(), bb) != null;
+        } finally {
+          jedis.close();
+        }
       }
     } catch (Exception e) {
       log.error(e.getMessage(), e);
@@ -119,34 +148,123 @@ class RedisCache implements ICacheSystem {
    *          the id
    * @return true, if successful
    */
-  public synchronized boolean delete(String id) {
-    return jedis.del(id.getBytes()) > 0;
+  public boolean delete(String id) {
+    ShardedJedis jedis = shardedJedisPool.getResource();
+    try {
+      return jedis.del(id.getBytes()) > 0;
+    } finally {
+      jedis.close();
+    }
   }
 
-  private static byte[] serialize(Object object) {
-    ObjectOutputStream oos = null;
-    ByteArrayOutputStream baos = null;
+  /**
+   * get the objects by pipeline.
+   *
+   * @param ids
+   *          the ids
+   * @return the map
+   */
+  public Map<String, Object> getAll(Collection<String> ids) {
+    Map<String, Object> m = new HashMap<String, Object>();
+    if (ids == null || ids.isEmpty()) {
+      return m;
+    }
+
+    List<String> keys = new ArrayList<String>(ids);
+    List<Response<byte[]>> rr = new ArrayList<Response<byte[]>>(keys.size());
+
+    ShardedJedis jedis = shardedJedisPool.getResource();
     try {
-      baos = new ByteArrayOutputStream();
-      oos = new ObjectOutputStream(baos);
-      oos.writeObject(object);
-      byte[] bytes = baos.toByteArray();
-      return bytes;
-    } catch (Exception e) {
+      ShardedJedisPipeline p = jedis.pipelined();
+      for (String id : keys) {
+        rr.add(p.get(id.getBytes()));
+      }
+      p.sync();
+    } finally {
+      jedis.close();
+    }
 
+    for (int i = 0; i < keys.size(); i++) {
+      byte[] bb = rr.get(i).get();
+      if (bb != null) {
+        try {
+          m.put(keys.get(i), serializer.decode(bb));
+        } catch (Exception e) {
+          log.warn("can not decode, id=" + keys.get(i), e);
+        }
+      }
     }
-    return null;
+    return m;
   }
 
-  private static Object unserialize(byte[] bytes) {
-    ByteArrayInputStream bais = null;
+  /**
+   * set the objects by pipeline.
+   *
+   * @param data
+   *          the data
+   * @return true, if successful
+   */
+  public boolean setAll(Map<String, Object> data) {
+    if (data == null || data.isEmpty()) {
+      return true;
+    }
+
     try {
-      bais = new ByteArrayInputStream(bytes);
-      ObjectInputStream ois = new ObjectInputStream(bais);
-      return ois.readObject();
+      ShardedJedis jedis = shardedJedisPool.getResource();
+      try {
+        ShardedJedisPipeline p = jedis.pipelined();
+        for (String id : data.keySet()) {
+          Object o = data.get(id);
+          if (o == null) {
+            p.del(id.getBytes());
+          } else {
+            p.set(id.getBytes(), serializer.encode(o));
+          }
+        }
+        p.sync();
+        return true;
+      } finally {
+        jedis.close();
+      }
     } catch (Exception e) {
+      log.error(e.getMessage(), e);
+    }
+    return false;
+  }
 
+  /**
+   * delete the ids by pipeline.
+   *
+   * @param ids
+   *          the ids
+   * @return true, if successful
+   */
+  public boolean deleteAll(Collection<String> ids) {
+    if (ids == null || ids.isEmpty()) {
+      return true;
     }
-    return null;
+
+    ShardedJedis jedis = shardedJedisPool.getResource();
+    try {
+      ShardedJedisPipeline p = jedis.pipelined();
+      for (String id : ids) {
+        p.del(id.getBytes());
+      }
+      p.sync();
+      return true;
+    } finally {
+      jedis.close();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * org.giiwa.core.cache.ICacheSystem#setSerializer(org.giiwa.core.cache.
+   * ISerializer)
+   */
+  public void setSerializer(ISerializer s) {
+    this.serializer = s;
   }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.giiwa.core.bean.X;
+import org.giiwa.core.conf.GlobalLock;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.ShardedJedisPool;
+
+/**
+ * The {@code RedisLock} Class store the global lock in redis by "SET NX PX",
+ * the fencing token is a counter of the lock by "INCR" <br>
+ * the renew and release check the owner and act in one script on the shard of
+ * the lock, so the lock of other owner is never touched after the lease
+ * expired.
+ */
+class RedisLock implements GlobalLock.IBackend {
+
+  static Log                  log     = LogFactory.getLog(RedisLock.class);
+
+  /**
+   * delete the lock if it's held by the owner, the result is string, the
+   * pipelined eval reads the reply as string
+   */
+  private static final String RELEASE = "if redis.call('get', KEYS[1]) == ARGV[1] then "
+      + "return tostring(redis.call('del', KEYS[1])) else return '0' end";
+
+  /** extend the lock if it's held by the owner */
+  private static final String RENEW   = "if redis.call('get', KEYS[1]) == ARGV[1] then "
+      + "return tostring(redis.call('pexpire', KEYS[1], ARGV[2])) else return '0' end";
+
+  private ShardedJedisPool    pool;
+
+  private String              prefix;
+
+  RedisLock(ShardedJedisPool pool, String prefix) {
+    this.pool = pool;
+    this.prefix = prefix + "lock/";
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.giiwa.core.conf.GlobalLock.IBackend#acquire(java.lang.String,
+   * java.lang.String, long)
+   */
+  public long acquire(String name, String owner, long lease) {
+    ShardedJedis jedis = pool.getResource();
+    try {
+      if (X.isSame("OK", jedis.set(prefix + name, owner, "NX", "PX", lease))) {
+        try {
+          return jedis.incr(prefix + name + "/token");
+        } catch (Exception e) {
+          // no token, do not hold the lock until the lease expired
+          log.error(name, e);
+          _release(jedis, name, owner);
+        }
+      }
+    } catch (Exception e) {
+      log.error(name, e);
+    } finally {
+      jedis.close();
+    }
+    return -1;
+  }
+
+  /**
+   * renew the leases by the script, pipelined on each shard.
+   */
+  public Collection<String> renew(Collection<String> names, String owner, long lease) {
+    List<String> lost = new ArrayList<String>();
+
+    ShardedJedis jedis = null;
+    try {
+      jedis = pool.getResource();
+      Map<Jedis, List<String>> shards = new HashMap<Jedis, List<String>>();
+      for (String name : names) {
+        Jedis j = jedis.getShard(prefix + name);
+        List<String> l1 = shards.get(j);
+        if (l1 == null) {
+          l1 = new ArrayList<String>();
+          shards.put(j, l1);
+        }
+        l1.add(name);
+      }
+
+      String ttl = Long.toString(lease);
+      for (Jedis j : shards.keySet()) {
+        List<String> keys = shards.get(j);
+        List<Response<String>> rr = new ArrayList<Response<String>>(keys.size());
+
+        Pipeline p = j.pipelined();
+        for (String name : keys) {
+          rr.add(p.eval(RENEW, Arrays.asList(prefix + name), Arrays.asList(owner, ttl)));
+        }
+        p.sync();
+
+        for (int i = 0; i < keys.size(); i++) {
+          if (X.toLong(rr.get(i).get(), 0) == 0) {
+            lost.add(keys.get(i));
+          }
+        }
+      }
+    } catch (Exception e) {
+      log.error(names, e);
+
+      // not renewed, the leases may be expired
+      lost = new ArrayList<String>(names);
+    } finally {
+      if (jedis != null) {
+        jedis.close();
+      }
+    }
+    return lost;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.giiwa.core.conf.GlobalLock.IBackend#release(java.lang.String,
+   * java.lang.String)
+   */
+  public boolean release(String name, String owner) {
+    ShardedJedis jedis = pool.getResource();
+    try {
+      return _release(jedis, name, owner);
+    } finally {
+      jedis.close();
+    }
+  }
+
+  private boolean _release(ShardedJedis jedis, String name, String owner) {
+    Object r = jedis.getShard(prefix + name).eval(RELEASE, Arrays.asList(prefix + name), Arrays.asList(owner));
+    return X.toLong(r, 0) > 0;
+  }
+
+}
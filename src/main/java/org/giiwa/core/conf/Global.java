@@ -14,15 +14,14 @@
 */
 package org.giiwa.core.conf;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.giiwa.core.bean.*;
 import org.giiwa.core.bean.Helper.V;
 import org.giiwa.core.bean.Helper.W;
-import org.giiwa.core.cache.Cache;
 import org.giiwa.core.task.Task;
-import org.giiwa.framework.web.Model;
 
 /**
  * The Class Global is extended of Config, it can be "overrided" by module or
@@ -68,22 +67,11 @@ public final class Global extends Bean {
       return X.toInt(cache.get(name), defaultValue);
     }
 
-    Global c = Cache.get("global/" + name);
-    if (c == null || c.expired()) {
-      c = Helper.load(W.create(X.ID, name), Global.class);
-      if (c != null) {
-        /**
-         * avoid restarted, can not load new config
-         */
-        c.setExpired(System.currentTimeMillis() + X.AMINUTE);
-        Cache.set("global/" + name, c);
-        return X.toInt(c.i, defaultValue);
-      } else {
-        return Config.getConfig().getInt(name, defaultValue);
-      }
+    Global c = snapshot().get(name);
+    if (c == null) {
+      return Config.getConfig().getInt(name, defaultValue);
     }
-
-    return c != null ? X.toInt(c.i, defaultValue) : defaultValue;
+    return X.toInt(c.i, defaultValue);
 
   }
 
@@ -102,21 +90,11 @@ public final class Global extends Bean {
       return cache.get(name) == null ? Config.getConfig().getString(name, defaultValue) : cache.get(name).toString();
     }
 
-    Global c = Cache.get("global/" + name);
-    if (c == null || c.expired()) {
-      c = Helper.load(W.create(X.ID, name), Global.class);
-      if (c != null) {
-        /**
-         * avoid restarted, can not load new config
-         */
-        c.setExpired(System.currentTimeMillis() + X.AMINUTE);
-        Cache.set("global/" + name, c);
-
-        return c.s != null ? c.s : defaultValue;
-      }
+    Global c = snapshot().get(name);
+    if (c == null) {
+      return Config.getConfig().getString(name, defaultValue);
     }
-
-    return c != null && c.s != null ? c.s : Config.getConfig().getString(name, defaultValue);
+    return c.s != null ? c.s : defaultValue;
 
   }
 
@@ -136,22 +114,164 @@ public final class Global extends Bean {
       return X.toLong(cache.get(name), defaultValue);
     }
 
-    Global c = Cache.get("global/" + name);
-    if (c == null || c.expired()) {
-      c = Helper.load(W.create(X.ID, name), Global.class);
-      if (c != null) {
-        /**
-         * avoid restarted, can not load new config
-         */
-        c.setExpired(System.currentTimeMillis() + X.AMINUTE);
-        Cache.set("global/" + name, c);
-
-        return X.toLong(c.l, defaultValue);
+    Global c = snapshot().get(name);
+    if (c == null) {
+      return Config.getConfig().getLong(name, defaultValue);
+    }
+    return X.toLong(c.l, defaultValue);
+
+  }
+
+  /**
+   * the id of the version of the settings in database, it's changed when any
+   * node set the config, it's checked by all nodes, even the cache is not
+   * shared
+   */
+  private static final String                 VERSION   = "global.version";
+
+  /**
+   * the interval to check the version
+   */
+  private static final long                   INTERVAL  = 10 * 1000;
+
+  /**
+   * the settings in memory, it's never modified, but replaced by a new copy
+   */
+  private static volatile Map<String, Global> snapshot  = null;
+
+  /**
+   * the version of the snapshot
+   */
+  private static volatile String              version   = null;
+
+  /**
+   * the snapshot is loaded completely, otherwise reload it in next check
+   */
+  private static volatile boolean             complete  = false;
+
+  private static Task                         refresher = new Refresher();
+
+  /**
+   * get the snapshot of the settings, load all from database at first time.
+   *
+   * @return the Map
+   */
+  private static Map<String, Global> snapshot() {
+    Map<String, Global> m = snapshot;
+    if (m == null) {
+      synchronized (Global.class) {
+        m = snapshot;
+        if (m == null) {
+          m = reload();
+          refresher.scheduleWithFixedDelay(INTERVAL, INTERVAL);
+        }
+      }
+    }
+    return m;
+  }
+
+  /**
+   * load all the settings from database and replace the snapshot.
+   *
+   * @return the new snapshot
+   */
+  private static synchronized Map<String, Global> reload() {
+    String v = _version();
+
+    Map<String, Global> m = new HashMap<String, Global>();
+    int s = 0;
+    Beans<Global> bs = Helper.load(W.create().sort(X.ID, 1), s, 100, Global.class);
+    while (bs != null && bs.getList() != null && bs.getList().size() > 0) {
+      for (Global g : bs.getList()) {
+        if (g.id != null && !g.id.startsWith("lock.") && !VERSION.equals(g.id)) {
+          m.put(g.id, g);
+        }
+      }
+      s += bs.getList().size();
+      bs = Helper.load(W.create().sort(X.ID, 1), s, 100, Global.class);
+    }
+
+    // the load returns null if failed, the empty list is the end
+    boolean ok = bs != null;
+
+    snapshot = Collections.unmodifiableMap(m);
+    version = v;
+    complete = ok;
+
+    if (!ok) {
+      log.warn("global settings loaded partially, size=" + m.size() + ", will reload in " + INTERVAL + "ms");
+    } else if (log.isDebugEnabled()) {
+      log.debug("global settings loaded, size=" + m.size() + ", version=" + v);
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * copy the snapshot with the change, and publish the new version to other
+   * nodes.
+   *
+   * @param name
+   *          the name
+   * @param g
+   *          the new value, null to remove
+   */
+  private static synchronized void publish(String name, Global g) {
+    Map<String, Global> m = snapshot;
+    if (m != null) {
+      m = new HashMap<String, Global>(m);
+      if (g == null) {
+        m.remove(name);
       } else {
-        return Config.getConfig().getLong(name, defaultValue);
+        m.put(name, g);
+      }
+      snapshot = Collections.unmodifiableMap(m);
+    }
+
+    String v = UID.random();
+    try {
+      if (Helper.update(W.create(X.ID, VERSION), V.create("s", v), Global.class) <= 0) {
+        Helper.insert(V.create(X.ID, VERSION).set("s", v), Global.class);
+      }
+    } catch (Exception e) {
+      log.error(e.getMessage(), e);
+    }
+    version = v;
+  }
+
+  /**
+   * read the version in database.
+   *
+   * @return the version, null if never changed or failed
+   */
+  private static String _version() {
+    Global g = Helper.load(W.create(X.ID, VERSION), Global.class);
+    return g == null ? null : g.s;
+  }
+
+  /**
+   * get the version of the settings, it's changed when any setting changed,
+   * the cached data which depends on the settings can be checked by it.
+   *
+   * @return the version, null if never changed
+   */
+  public static String getVersion() {
+    return version;
+  }
+
+  /**
+   * The {@code Refresher} Class check the version of the settings, and reload
+   * the snapshot if changed by other node, or not loaded completely
+   */
+  private static class Refresher extends Task {
+
+    @Override
+    public void onExecute() {
+      String v = _version();
+      if (!complete || (v != null && !X.isSame(v, version))) {
+        reload();
       }
     }
-    return c != null ? X.toLong(c.l, defaultValue) : defaultValue;
 
   }
 
@@ -179,10 +299,9 @@ public final class Global extends Bean {
       return;
     }
 
-    Cache.remove("global/" + name);
-
     if (o == null) {
       Helper.delete(W.create(X.ID, name), Global.class);
+      publish(name, null);
       return;
     }
 
@@ -206,6 +325,8 @@ public final class Global extends Bean {
       } else {
         Helper.insert(v.set(X.ID, name), Global.class);
       }
+
+      publish(name, Helper.load(W.create(X.ID, name), Global.class));
     } catch (Exception e1) {
       log.error(e1.getMessage(), e1);
     }
@@ -230,67 +351,10 @@ public final class Global extends Bean {
    * @param timeout
    *          the timeout
    * @return true, if successful
+   * @see GlobalLock#lock(String, long)
    */
-  public static synchronized boolean lock(String name, long timeout) {
-
-    name = "lock." + name;
-    heartbeat.schedule(10);
-
-    if (locked.containsKey(name)) {
-      return true;
-    }
-
-    if (timeout <= 0) {
-      return false;
-    }
-
-    try {
-      long now = System.currentTimeMillis();
-
-      String node = Model.node();
-
-      Global f = Helper.load(name, Global.class);
-
-      if (f == null) {
-        String linkid = UID.random();
-
-        Helper.insert(V.create(X.ID, name).set("s", node).set("linkid", linkid), Global.class);
-        f = Helper.load(name, Global.class);
-        if (f == null) {
-          log.error("occur error when create unique id, name=" + name);
-          return false;
-        } else if (!X.isSame(f.getString("linkid"), linkid)) {
-          synchronized (name) {
-            name.wait(1000);
-          }
-          return lock(name, timeout - System.currentTimeMillis() + now);
-        }
-
-        locked.put(name, Thread.currentThread());
-
-        return true;
-      } else {
-        String s = f.getString("s");
-        // 10 seconds
-        if (X.isEmpty(s) || System.currentTimeMillis() - f.getUpdated() > 10000) {
-          if (Helper.update(W.create(X.ID, name).and("s", s), V.create("s", node), Global.class) > 0) {
-            locked.put(name, Thread.currentThread());
-
-            return true;
-          } else {
-            synchronized (name) {
-              name.wait(1000);
-            }
-            return lock(name, timeout - System.currentTimeMillis() + now);
-          }
-        }
-      }
-
-    } catch (Exception e) {
-      log.error(e.getMessage(), e);
-    }
-
-    return false;
+  public static boolean lock(String name, long timeout) {
+    return GlobalLock.lock(name, timeout) > 0;
   }
 
   /**
@@ -300,46 +364,8 @@ public final class Global extends Bean {
    *          the name of lock
    * @return true, if successful
    */
-  public static synchronized boolean release(String name) {
-    name = "lock." + name;
-    try {
-      String node = Model.node();
-      return Helper.update(W.create(X.ID, name).and("s", node), V.create("s", X.EMPTY), Global.class) > 0;
-
-    } finally {
-      locked.remove(name);
-    }
+  public static boolean release(String name) {
+    return GlobalLock.release(name);
   }
 
-  private static Task heartbeat = new LockHeartbeat();
-
-  private static class LockHeartbeat extends Task {
-
-    @Override
-    public void onExecute() {
-      if (locked.size() > 0) {
-        String[] names = locked.keySet().toArray(new String[locked.size()]);
-        String node = Model.node();
-
-        for (String name : names) {
-          if (Helper.update(W.create(X.ID, name).and("s", node), V.create("updated", System.currentTimeMillis()),
-              Global.class) <= 0) {
-            // the lock has been acquired by other
-            Thread t = locked.get(name);
-            t.interrupt();
-            locked.remove(name);
-          }
-        }
-      }
-    }
-
-    @Override
-    public void onFinish() {
-      this.schedule(3000);
-    }
-
-  }
-
-  private static Map<String, Thread> locked = new HashMap<String, Thread>();
-
 }
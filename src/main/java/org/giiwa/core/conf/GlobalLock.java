@@ -0,0 +1,412 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.conf;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.giiwa.core.bean.Beans;
+import org.giiwa.core.bean.Helper;
+import org.giiwa.core.bean.Helper.V;
+import org.giiwa.core.bean.Helper.W;
+import org.giiwa.core.bean.UID;
+import org.giiwa.core.bean.X;
+import org.giiwa.core.cache.Cache;
+import org.giiwa.core.task.Task;
+import org.giiwa.framework.web.Model;
+
+/**
+ * The {@code GlobalLock} Class is the lock across the nodes, each lock has a
+ * lease, which renewed by the heartbeat in one batch, and a fencing token which
+ * increased on each acquire. <br>
+ * the backend can be configured in giiwa.properties
+ *
+ * <pre>
+ * lock.backend=db|redis
+ * </pre>
+ *
+ * by default, the redis is used if the cache is redis, otherwise the row in
+ * gi_config. <br>
+ * the threads in same node wait on the local state of the lock, and are
+ * notified when released.
+ *
+ * @author joe
+ *
+ */
+public final class GlobalLock {
+
+  static Log                              log       = LogFactory.getLog(GlobalLock.class);
+
+  /**
+   * the lease of the lock, the lock will be taken by other if not renewed in
+   * the lease
+   */
+  public static final long                LEASE     = 10 * 1000;
+
+  /**
+   * the interval of renewing the leases
+   */
+  static final long                       RENEW     = 3000;
+
+  /**
+   * the max interval to retry when the lock is held by other node
+   */
+  private static final long               RETRY     = 500;
+
+  private static final Map<String, State> states    = new ConcurrentHashMap<String, State>();
+
+  /** the heartbeat started */
+  private static final AtomicBoolean      renewing  = new AtomicBoolean(false);
+
+  private static Task                     heartbeat = new LockHeartbeat();
+
+  private static IBackend                 backend;
+
+  private static String                   owner;
+
+  /**
+   * The {@code IBackend} Interface is the storage of the locks
+   */
+  public interface IBackend {
+
+    /**
+     * try to acquire the lock once.
+     *
+     * @param name
+     *          the name of the lock
+     * @param owner
+     *          the owner
+     * @param lease
+     *          the lease in milliseconds
+     * @return the fencing token, or -1 if held by other
+     */
+    long acquire(String name, String owner, long lease);
+
+    /**
+     * renew the leases of the locks in one batch.
+     *
+     * @param names
+     *          the names of the locks held by the owner
+     * @param owner
+     *          the owner
+     * @param lease
+     *          the lease in milliseconds
+     * @return the names that lost
+     */
+    Collection<String> renew(Collection<String> names, String owner, long lease);
+
+    /**
+     * release the lock.
+     *
+     * @param name
+     *          the name of the lock
+     * @param owner
+     *          the owner
+     * @return true, if successful
+     */
+    boolean release(String name, String owner);
+
+  }
+
+  /**
+   * lock a global lock, it's reentrant in the same thread.
+   *
+   * @param name
+   *          the name of the lock
+   * @param timeout
+   *          the timeout in milliseconds, try once if &lt;= 0
+   * @return the fencing token, or -1 if timeout
+   */
+  public static long lock(String name, long timeout) {
+    State s = state(name);
+    Thread t = Thread.currentThread();
+    long deadline = System.currentTimeMillis() + timeout;
+    long wait = 10;
+
+    while (true) {
+      synchronized (s) {
+        if (s.holder == t) {
+          s.count++;
+          return s.token;
+        }
+
+        // held by other thread, or other thread is calling the backend
+        while (s.holder != null || s.busy) {
+          long left = deadline - System.currentTimeMillis();
+          if (left <= 0) {
+            return -1;
+          }
+          try {
+            s.wait(left);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+          }
+        }
+        s.busy = true;
+      }
+
+      // call the backend out of the monitor
+      long token = -1;
+      try {
+        token = backend().acquire(name, owner(), LEASE);
+      } catch (Exception e) {
+        log.error(name, e);
+      }
+
+      synchronized (s) {
+        s.busy = false;
+        if (token > 0) {
+          s.holder = t;
+          s.count = 1;
+          s.token = token;
+
+          if (renewing.compareAndSet(false, true)) {
+            heartbeat.scheduleAtFixedRate(RENEW, RENEW);
+          }
+          return token;
+        }
+        s.notifyAll();
+
+        long left = deadline - System.currentTimeMillis();
+        if (left <= 0) {
+          return -1;
+        }
+
+        try {
+          // held by other node, back off
+          s.wait(Math.min(wait, left));
+          wait = Math.min(wait * 2, RETRY);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return -1;
+        }
+      }
+    }
+  }
+
+  /**
+   * release the global lock.
+   *
+   * @param name
+   *          the name of the lock
+   * @return true, if successful
+   */
+  public static boolean release(String name) {
+    State s = states.get(name);
+    if (s == null) {
+      return false;
+    }
+
+    synchronized (s) {
+      if (s.holder != Thread.currentThread()) {
+        // not the holder, or lost
+        return false;
+      }
+      if (--s.count > 0) {
+        return true;
+      }
+
+      s.holder = null;
+      s.count = 0;
+
+      // the owner is same for all the threads of the node, the others can not
+      // acquire it until released in the backend
+      s.busy = true;
+    }
+
+    try {
+      return backend().release(name, owner());
+    } catch (Exception e) {
+      log.error(name, e);
+    } finally {
+      synchronized (s) {
+        s.busy = false;
+        s.notifyAll();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * get the fencing token of the lock held by current node.
+   *
+   * @param name
+   *          the name of the lock
+   * @return the token, or -1 if not held
+   */
+  public static long token(String name) {
+    State s = states.get(name);
+    if (s != null) {
+      synchronized (s) {
+        if (s.holder != null) {
+          return s.token;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static State state(String name) {
+    State s = states.get(name);
+    if (s == null) {
+      s = new State();
+      State s1 = states.putIfAbsent(name, s);
+      if (s1 != null) {
+        s = s1;
+      }
+    }
+    return s;
+  }
+
+  private static synchronized IBackend backend() {
+    if (backend == null) {
+      String s = Config.getConfig().getString("lock.backend", X.EMPTY);
+      if (!X.isSame("db", s)) {
+        backend = Cache.getLockBackend();
+      }
+      if (backend == null) {
+        backend = new DBBackend();
+      }
+      log.info("global lock backend: " + backend.getClass().getSimpleName());
+    }
+    return backend;
+  }
+
+  /**
+   * the owner is unique for each process, the node plus random
+   *
+   * @return the owner
+   */
+  private static synchronized String owner() {
+    if (owner == null) {
+      owner = Model.node() + "/" + UID.random();
+    }
+    return owner;
+  }
+
+  /**
+   * the local state of the lock
+   */
+  private static final class State {
+    volatile Thread holder;
+    int             count;
+    long            token;
+
+    /** a thread is calling the backend for the lock */
+    boolean         busy;
+  }
+
+  /**
+   * The {@code LockHeartbeat} Class renew all the locks held by this node in
+   * one batch, and interrupt the holder if the lock was lost
+   */
+  private static class LockHeartbeat extends Task {
+
+    @Override
+    public void onExecute() {
+      List<String> names = new ArrayList<String>();
+      for (String name : states.keySet()) {
+        if (states.get(name).holder != null) {
+          names.add(name);
+        }
+      }
+
+      if (names.size() > 0) {
+        Collection<String> lost = backend().renew(names, owner(), LEASE);
+        if (lost != null) {
+          for (String name : lost) {
+            State s = states.get(name);
+            synchronized (s) {
+              if (s.holder != null) {
+                log.warn("the lock has been acquired by other, name=" + name);
+
+                s.holder.interrupt();
+                s.holder = null;
+                s.count = 0;
+                s.notifyAll();
+              }
+            }
+          }
+        }
+      }
+    }
+
+  }
+
+  /**
+   * The {@code DBBackend} Class store the lock in the row of gi_config, the id
+   * is "lock." + name, s is the owner, l is the fencing token, and updated is
+   * the last renewed time
+   */
+  static class DBBackend implements IBackend {
+
+    public long acquire(String name, String owner, long lease) {
+      String id = "lock." + name;
+      try {
+        Global f = Helper.load(id, Global.class);
+        if (f == null) {
+          // the unique index of id make sure only one can insert
+          if (Helper.insert(V.create(X.ID, id).set("s", owner).set("l", 1L), Global.class) > 0) {
+            return 1;
+          }
+        } else if (X.isEmpty(f.s) || System.currentTimeMillis() - f.getUpdated() > lease) {
+          long token = f.l + 1;
+          if (Helper.update(W.create(X.ID, id).and("l", f.l), V.create("s", owner).set("l", token),
+              Global.class) > 0) {
+            return token;
+          }
+        }
+      } catch (Exception e) {
+        if (log.isDebugEnabled())
+          log.debug(name, e);
+      }
+      return -1;
+    }
+
+    public Collection<String> renew(Collection<String> names, String owner, long lease) {
+      // the owner is unique, so all the locks can be renewed in one update
+      int n = Helper.update(W.create("s", owner), V.create("updated", System.currentTimeMillis()),
+          Global.class);
+      if (n >= names.size()) {
+        return Collections.emptyList();
+      }
+
+      Set<String> lost = new HashSet<String>(names);
+      Beans<Global> bs = Helper.load(W.create("s", owner), 0, names.size(), Global.class);
+      if (bs != null && bs.getList() != null) {
+        for (Global g : bs.getList()) {
+          lost.remove(g.id.substring(5));
+        }
+      }
+      return lost;
+    }
+
+    public boolean release(String name, String owner) {
+      return Helper.update(W.create(X.ID, "lock." + name).and("s", owner), V.create("s", X.EMPTY), Global.class) > 0;
+    }
+
+  }
+
+}
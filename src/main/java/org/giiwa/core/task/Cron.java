@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.task;
+
+import java.util.BitSet;
+import java.util.Calendar;
+
+import org.giiwa.core.bean.X;
+
+/**
+ * The {@code Cron} Class is the cron expression of 5 fields
+ *
+ * <pre>
+ * minute hour day-of-month month day-of-week
+ * each field supports: *, n, a-b, a,b, * /n, a-b/n
+ * day-of-week: 0-7, 0 and 7 are sunday
+ * </pre>
+ *
+ * @author joe
+ *
+ */
+final class Cron {
+
+  private final String expression;
+  private final BitSet minutes;
+  private final BitSet hours;
+  private final BitSet days;
+  private final BitSet months;
+  private final BitSet weeks;
+
+  /** the day-of-month or day-of-week is "*" */
+  private final boolean anyday;
+  private final boolean anyweek;
+
+  private Cron(String expression, String[] ss) {
+    this.expression = expression;
+    minutes = parse(ss[0], 0, 59);
+    hours = parse(ss[1], 0, 23);
+    days = parse(ss[2], 1, 31);
+    months = parse(ss[3], 1, 12);
+    weeks = parse(ss[4], 0, 7);
+    if (weeks.get(7)) {
+      weeks.set(0);
+    }
+    anyday = ss[2].startsWith("*");
+    anyweek = ss[4].startsWith("*");
+  }
+
+  /**
+   * parse the cron expression.
+   *
+   * @param expression
+   *          the expression
+   * @return the Cron
+   * @throws IllegalArgumentException
+   *           if the expression is bad
+   */
+  static Cron create(String expression) {
+    String[] ss = expression.trim().split("\\s+");
+    if (ss.length != 5) {
+      throw new IllegalArgumentException("bad cron expression: " + expression);
+    }
+    return new Cron(expression, ss);
+  }
+
+  private static BitSet parse(String field, int min, int max) {
+    BitSet b = new BitSet(max + 1);
+    for (String s : field.split(",")) {
+      int step = 1;
+      int i = s.indexOf("/");
+      if (i > 0) {
+        step = X.toInt(s.substring(i + 1), 0);
+        s = s.substring(0, i);
+      }
+
+      int from, to;
+      if ("*".equals(s)) {
+        from = min;
+        to = max;
+      } else {
+        i = s.indexOf("-");
+        if (i > 0) {
+          from = X.toInt(s.substring(0, i), -1);
+          to = X.toInt(s.substring(i + 1), -1);
+        } else {
+          from = X.toInt(s, -1);
+          to = step > 1 ? max : from;
+        }
+      }
+
+      if (step < 1 || from < min || to > max || from > to) {
+        throw new IllegalArgumentException("bad cron field: " + field);
+      }
+
+      for (int k = from; k <= to; k += step) {
+        b.set(k);
+      }
+    }
+    return b;
+  }
+
+  private boolean day(Calendar c) {
+    boolean d = days.get(c.get(Calendar.DAY_OF_MONTH));
+    boolean w = weeks.get(c.get(Calendar.DAY_OF_WEEK) - 1);
+    if (anyday) {
+      return w;
+    } else if (anyweek) {
+      return d;
+    }
+    // both restricted, either matches
+    return d || w;
+  }
+
+  /**
+   * get the next time matches after the time.
+   *
+   * @param time
+   *          the time in milliseconds
+   * @return the next time, or -1 if not found in 5 years
+   */
+  long next(long time) {
+    Calendar c = Calendar.getInstance();
+    c.setTimeInMillis(time);
+    c.set(Calendar.SECOND, 0);
+    c.set(Calendar.MILLISECOND, 0);
+    c.add(Calendar.MINUTE, 1);
+
+    int year = c.get(Calendar.YEAR) + 5;
+    while (c.get(Calendar.YEAR) <= year) {
+      if (!months.get(c.get(Calendar.MONTH) + 1)) {
+        c.set(Calendar.DAY_OF_MONTH, 1);
+        c.set(Calendar.HOUR_OF_DAY, 0);
+        c.set(Calendar.MINUTE, 0);
+        c.add(Calendar.MONTH, 1);
+      } else if (!day(c)) {
+        c.set(Calendar.HOUR_OF_DAY, 0);
+        c.set(Calendar.MINUTE, 0);
+        c.add(Calendar.DAY_OF_MONTH, 1);
+      } else if (!hours.get(c.get(Calendar.HOUR_OF_DAY))) {
+        c.set(Calendar.MINUTE, 0);
+        c.add(Calendar.HOUR_OF_DAY, 1);
+      } else if (!minutes.get(c.get(Calendar.MINUTE))) {
+        c.add(Calendar.MINUTE, 1);
+      } else {
+        return c.getTimeInMillis();
+      }
+    }
+    return -1;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.lang.Object#toString()
+   */
+  public String toString() {
+    return expression;
+  }
+
+}
@@ -16,7 +16,9 @@ package org.giiwa.core.task;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -77,6 +79,19 @@ public class Monitor {
     }
   }
 
+  /**
+   * get the run history of all the periodic tasks.
+   *
+   * @return the List of JSON
+   */
+  public static List<JSON> periodics() {
+    List<JSON> l1 = new ArrayList<JSON>();
+    for (Task t : Task.getPeriodics()) {
+      l1.add(t.getHistory());
+    }
+    return l1;
+  }
+
   /**
    * Gets the.
    *
@@ -108,6 +123,10 @@ public class Monitor {
           }
         }
 
+        if (t instanceof Task) {
+          jo.put("history", ((Task) t).getHistory());
+        }
+
         return jo;
       }
     }
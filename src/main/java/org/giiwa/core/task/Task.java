@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.*;
 import org.giiwa.core.bean.*;
+import org.giiwa.core.json.JSON;
 
 /**
  * The {@code WorkerTask} Class use for create a runnable Task, and includes
@@ -37,7 +38,22 @@ import org.giiwa.core.bean.*;
  * <br>
  * all the task that scheduled by workertask, will be queued and executed by a
  * thread pool, the thread number was configured in giiwa.properties
- * "thread.number";
+ * "thread.number"; <br>
+ * the delay is handled by the scheduler, and the task is dispatched to the
+ * executor configured by "task.executor"
+ * 
+ * <pre>
+ * pool: run in the thread of the scheduler, default
+ * forkjoin: dispatch to a work-stealing pool of "thread.number"
+ * virtual: dispatch to a virtual thread per task if the JVM supports, otherwise forkjoin
+ * </pre>
+ * 
+ * the task can be put in a named group by getGroup, each group has its own
+ * bounded queue and concurrency limit, configured by
+ * 
+ * <pre>
+ * task.group.[name]=[concurrency],[capacity],[reject|oldest|caller]
+ * </pre>
  * 
  * @author joe
  *
@@ -50,16 +66,64 @@ public abstract class Task implements Runnable {
   /** The is shutingdown. */
   public static boolean                      isShutingdown = false;
 
-  /** The executor. */
+  public static final String                 POOL          = "pool";
+  public static final String                 FORKJOIN      = "forkjoin";
+  public static final String                 VIRTUAL       = "virtual";
+
+  /** The executor, the scheduler of the delay. */
   private static ScheduledThreadPoolExecutor executor;
 
-  private static Object                      lock          = new Object();
+  /** The runner, null if run in the thread of the scheduler. */
+  private static ExecutorService             runner;
+
+  /** the thread number of the runner, 0 if unbounded */
+  private static int                         runners;
+
+  /** the number of tasks running in the runner */
+  private static AtomicInteger               active        = new AtomicInteger(0);
 
   /** The pending queue. */
-  private static ArrayList<Task>             pendingQueue  = new ArrayList<Task>();
+  private static Set<Task>                   pendingQueue  = Collections
+      .newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
 
   /** The running queue. */
-  private static ArrayList<Task>             runningQueue  = new ArrayList<Task>();
+  private static Set<Task>                   runningQueue  = Collections
+      .newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+
+  /** dispatch the task to the runner when the delay is out */
+  private transient Runnable                 dispatcher;
+
+  /** the groups */
+  private static Map<String, Group>          groups        = new ConcurrentHashMap<String, Group>();
+
+  /** the sequence in the group queue */
+  private transient long                     queued;
+
+  private static final int                   ONCE          = 0;
+  private static final int                   RATE          = 1;
+  private static final int                   DELAY         = 2;
+  private static final int                   CRON          = 3;
+
+  /** the timing wheel of the periodic tasks */
+  private static TimingWheel                 wheel;
+
+  /** the periodic tasks */
+  private static Set<Task>                   periodics     = Collections
+      .newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+
+  private transient TimingWheel.Timer        timer;
+  private transient int                      mode          = ONCE;
+  private transient long                     period;
+  private transient Cron                     cron;
+
+  /** the planned time of the next run */
+  private transient long                     next;
+
+  /** the run history */
+  private transient volatile long            runs;
+  private transient volatile long            lastrun;
+  private transient volatile long            lastcost;
+  private transient volatile long            overruns;
 
   /** The stop. */
   private boolean                            stop          = false;
@@ -123,6 +187,16 @@ public abstract class Task implements Runnable {
     return _name;
   }
 
+  /**
+   * the group of the task, default is null, the task will not be limited by
+   * any group
+   * 
+   * @return String of the group name
+   */
+  public String getGroup() {
+    return null;
+  }
+
   /**
    * Interruptable.
    * 
@@ -144,6 +218,14 @@ public abstract class Task implements Runnable {
     // do nothing, it will be die
   }
 
+  /**
+   * called when the task is rejected or dropped by the group, or rejected by
+   * the runner, it will not run this time.
+   */
+  public void onReject() {
+    // do nothing
+  }
+
   /**
    * On stop.
    * 
@@ -154,10 +236,8 @@ public abstract class Task implements Runnable {
     if (log.isInfoEnabled())
       log.info(getName() + " is stoped");
 
-    synchronized (lock) {
-      pendingQueue.remove(this);
-      runningQueue.remove(this);
-    }
+    pendingQueue.remove(this);
+    runningQueue.remove(this);
 
   };
 
@@ -192,43 +272,77 @@ public abstract class Task implements Runnable {
    * @see java.lang.Runnable#run()
    */
   final public void run() {
-    int old = Thread.NORM_PRIORITY;
+    run(false);
+  }
 
-    synchronized (lock) {
-      pendingQueue.remove(this);
+  /**
+   * run the task.
+   *
+   * @param caller
+   *          run in the caller thread (the group is full), the thread is not
+   *          interrupted by stop, and its name is restored
+   */
+  private void run(boolean caller) {
+    Group g = group();
+    long wait = t.past();
+    long start = System.currentTimeMillis();
+    boolean executed = false;
+    try {
+      executed = _run(caller);
+    } finally {
+      long cost = System.currentTimeMillis() - start;
+      if (executed) {
+        runs++;
+        lastrun = start;
+        lastcost = cost;
+      }
 
-      if (runningQueue.contains(this)) {
-        // there is a copy is running
-        log.warn("run duplicated task:" + getName());
-        return;
+      if (g != null) {
+        // hand over the slot to the next in the group
+        handover(g, g.release(wait, cost));
       }
 
-      sf = null;
+      if (mode == DELAY && !stop) {
+        arm(System.currentTimeMillis() + period);
+      }
+    }
+  }
+
+  private boolean _run(boolean caller) {
+    Thread th = Thread.currentThread();
+    String oldname = th.getName();
+    int old = th.getPriority();
 
-      runningQueue.add(this);
-      // log.debug(getName() + " is running");
+    pendingQueue.remove(this);
+
+    if (!runningQueue.add(this)) {
+      // there is a copy is running
+      log.warn("run duplicated task:" + getName());
+      return false;
     }
 
+    sf = null;
+
     try {
       try {
         if (stop) {
+          runningQueue.remove(this);
           onStop(fast);
-          return;
+          return false;
         }
 
         String name = getName();
         synchronized (t) {
-          who = Thread.currentThread();
-          if (who != null) {
-            who.setName(name);
+          if (!caller) {
+            who = th;
+          }
+          th.setName(name);
 
-            if (log.isDebugEnabled())
-              log.debug(this.getClass() + " is running ..., delayed: " + t.past() + "ms, tasks:" + tasksInQueue()
-                  + ", active:" + Task.activeThread() + ", idle:" + Task.idleThread());
+          if (log.isDebugEnabled())
+            log.debug(this.getClass() + " is running ..., delayed: " + t.past() + "ms, tasks:" + tasksInQueue()
+                + ", active:" + Task.activeThread() + ", idle:" + Task.idleThread());
 
-            old = who.getPriority();
-            who.setPriority(priority());
-          }
+          th.setPriority(priority());
         }
       } catch (Throwable e) {
         log.error(e.getMessage(), e);
@@ -237,20 +351,14 @@ public abstract class Task implements Runnable {
       /**
        * ensure onExecute be executed
        */
+      active.incrementAndGet();
       try {
         onExecute();
       } finally {
-        synchronized (lock) {
-          runningQueue.remove(this);
-
-          onFinish();
-        }
-      }
+        runningQueue.remove(this);
+        active.decrementAndGet();
 
-      synchronized (t) {
-        if (who != null) {
-          who.setPriority(old);
-        }
+        onFinish();
       }
     } catch (Throwable e) {
       log.error(e.getMessage(), e);
@@ -265,8 +373,13 @@ public abstract class Task implements Runnable {
       synchronized (t) {
         who = null;
       }
+      th.setPriority(old);
+      if (caller) {
+        th.setName(oldname);
+      }
     }
 
+    return true;
   }
 
   /**
@@ -276,19 +389,66 @@ public abstract class Task implements Runnable {
    *          the thread num
    */
   public static void init(int threadNum) {
-    executor = new ScheduledThreadPoolExecutor(threadNum, new ThreadFactory() {
+    init(threadNum, POOL);
+  }
+
+  /**
+   * initialize the workertask with the executor.
+   *
+   * @param threadNum
+   *          the thread num
+   * @param mode
+   *          the executor, pool|forkjoin|virtual
+   */
+  public static void init(int threadNum, String mode) {
+    final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+
+    runner = null;
+    runners = threadNum;
+
+    if (X.isSame(VIRTUAL, mode)) {
+      try {
+        // Java 21+
+        runner = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        runners = 0;
+      } catch (Exception e) {
+        log.warn("virtual thread not supported, using forkjoin");
+        mode = FORKJOIN;
+      }
+    }
+
+    if (X.isSame(FORKJOIN, mode)) {
+      runner = new ForkJoinPool(threadNum, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+
+        AtomicInteger i = new AtomicInteger(1);
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+          ForkJoinWorkerThread th = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          th.setContextClassLoader(loader);
+          th.setName("task-" + i.incrementAndGet());
+          return th;
+        }
+
+      }, null, true);
+    }
+
+    // the scheduler only dispatch if the runner exists
+    executor = new ScheduledThreadPoolExecutor(runner == null ? threadNum : 2, new ThreadFactory() {
 
       AtomicInteger i = new AtomicInteger(1);
 
       @Override
       public Thread newThread(Runnable r) {
         Thread th = new Thread(r);
-        th.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        th.setContextClassLoader(loader);
         th.setName("task-" + i.incrementAndGet());
         return th;
       }
 
     });
+
+    log.info("task executor: " + (runner == null ? POOL : mode) + ", threads=" + threadNum);
   }
 
   /**
@@ -300,6 +460,9 @@ public abstract class Task implements Runnable {
   final public void stop(boolean fast) {
     stop = true;
     this.fast = fast;
+    if (timer != null) {
+      wheel.cancel(timer);
+    }
     synchronized (t) {
       if (who != null) {
         if (interruptable()) {
@@ -384,12 +547,29 @@ public abstract class Task implements Runnable {
       if (executor == null)
         return this;
 
-      synchronized (lock) {
+      Group g = group();
+      if (g != null) {
+        int r = g.admit(this, msec <= 0 && mode == ONCE);
+        if (r == Group.REJECTED) {
+          log.warn("the group is full, rejected: " + getName() + ", group=" + g.name);
+          rejected();
+          return this;
+        } else if (r == Group.CALLERRUNS) {
+          // run in the caller thread, slow down the producer
+          run(true);
+          return this;
+        }
+      }
+
+      synchronized (t) {
         // scheduled
         if (runningQueue.contains(this)) {
           if (log.isDebugEnabled())
             log.warn("the task is running, ignored: " + getName());
 
+          if (g != null) {
+            g.cancel(this);
+          }
           return this;
         }
 
@@ -405,7 +585,7 @@ public abstract class Task implements Runnable {
         }
 
         t.set(System.currentTimeMillis() + msec);
-        sf = executor.schedule(this, msec, TimeUnit.MILLISECONDS);
+        sf = executor.schedule(runner == null && g == null ? this : dispatcher(), msec, TimeUnit.MILLISECONDS);
         pendingQueue.add(this);
       }
     }
@@ -413,6 +593,162 @@ public abstract class Task implements Runnable {
     return this;
   }
 
+  /**
+   * schedule the task at fixed rate, the next run is planned from the previous
+   * planned time, not the finished time, so it does not drift; if the previous
+   * run is still running, the run is skipped and counted as overrun.
+   *
+   * @param delay
+   *          the delay of the first run in milliseconds
+   * @param period
+   *          the period in milliseconds
+   * @return the Task
+   */
+  final public Task scheduleAtFixedRate(long delay, long period) {
+    return periodic(RATE, period, null, System.currentTimeMillis() + delay);
+  }
+
+  /**
+   * schedule the task with fixed delay, the next run is planned after the
+   * previous finished.
+   *
+   * @param delay
+   *          the delay of the first run in milliseconds
+   * @param period
+   *          the delay between the finished and the next run in milliseconds
+   * @return the Task
+   */
+  final public Task scheduleWithFixedDelay(long delay, long period) {
+    return periodic(DELAY, period, null, System.currentTimeMillis() + delay);
+  }
+
+  /**
+   * schedule the task by cron expression, "minute hour day-of-month month
+   * day-of-week", e.g. "0 * * * *" each hour, "30 2 * * 1-5" 2:30 on weekdays.
+   *
+   * @param expression
+   *          the cron expression
+   * @return the Task
+   * @throws IllegalArgumentException
+   *           if the expression is bad
+   */
+  final public Task scheduleCron(String expression) {
+    Cron c = Cron.create(expression);
+    return periodic(CRON, 0, c, c.next(System.currentTimeMillis()));
+  }
+
+  private Task periodic(int mode, long period, Cron cron, long time) {
+    if (mode != CRON && period <= 0) {
+      throw new IllegalArgumentException("period must be positive, period=" + period);
+    }
+
+    synchronized (Task.class) {
+      if (wheel == null) {
+        wheel = new TimingWheel();
+      }
+    }
+
+    this.mode = mode;
+    this.period = period;
+    this.cron = cron;
+    if (timer == null) {
+      timer = new TimingWheel.Timer(this);
+    }
+    periodics.add(this);
+    arm(time);
+    return this;
+  }
+
+  /**
+   * arm the timer of the periodic task.
+   *
+   * @param time
+   *          the time of next run
+   */
+  private void arm(long time) {
+    next = time;
+    if (time > 0 && !stop) {
+      pendingQueue.add(this);
+      wheel.arm(timer, time);
+    } else {
+      periodics.remove(this);
+    }
+  }
+
+  /**
+   * called by the timing wheel when the timer expired.
+   *
+   * @param tt
+   *          the timer
+   */
+  void due(TimingWheel.Timer tt) {
+    if (stop || tt.armed()) {
+      // stopped, or re-armed
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    t.set(next);
+
+    boolean running = runningQueue.contains(this);
+
+    // arm the next first, so the rate does not drift
+    if (mode == RATE) {
+      long n = next + period;
+      if (n <= now) {
+        // missed some periods
+        overruns += (now - n) / period + 1;
+        n += ((now - n) / period + 1) * period;
+      }
+      arm(n);
+    } else if (mode == CRON) {
+      arm(cron.next(Math.max(now, next)));
+    }
+
+    if (running) {
+      if (mode == RATE || mode == CRON) {
+        overruns++;
+      }
+      log.warn("the task is running, skipped: " + getName());
+      return;
+    }
+
+    if (executor != null) {
+      executor.execute(dispatcher());
+    }
+  }
+
+  /**
+   * get the run history of the task.
+   *
+   * @return the JSON of {name, mode, runs, lastrun, lastcost, overruns, next}
+   */
+  public JSON getHistory() {
+    JSON jo = JSON.create();
+    jo.put("name", getName());
+    jo.put("mode", mode == RATE ? "rate" : (mode == DELAY ? "delay" : (mode == CRON ? "cron" : "once")));
+    if (mode == CRON) {
+      jo.put("cron", cron.toString());
+    } else if (mode != ONCE) {
+      jo.put("period", period);
+    }
+    jo.put("runs", runs);
+    jo.put("lastrun", lastrun);
+    jo.put("lastcost", lastcost);
+    jo.put("overruns", overruns);
+    jo.put("next", next);
+    return jo;
+  }
+
+  /**
+   * get the periodic tasks.
+   *
+   * @return the List of the tasks
+   */
+  public static List<Task> getPeriodics() {
+    return new ArrayList<Task>(periodics);
+  }
+
   /**
    * Stop all.
    * 
@@ -428,31 +764,24 @@ public abstract class Task implements Runnable {
     new Thread() {
       public void run() {
         try {
-          synchronized (lock) {
-            for (int i = pendingQueue.size() - 1; i > -1; i--) {
-              Task t = pendingQueue.get(i);
-              t.stop(fast);
-            }
+          for (Task t : pendingQueue) {
+            t.stop(fast);
+          }
 
-            for (int i = runningQueue.size() - 1; i > -1; i--) {
-              Task t = runningQueue.get(i);
-              t.stop(fast);
-            }
+          for (Task t : runningQueue) {
+            t.stop(fast);
           }
 
           while (runningQueue.size() > 0) {
-            synchronized (lock) {
-              try {
-                log.info("stoping, size=" + runningQueue.size() + ", running task=" + runningQueue);
+            try {
+              log.info("stoping, size=" + runningQueue.size() + ", running task=" + runningQueue);
 
-                for (int i = runningQueue.size() - 1; i > -1; i--) {
-                  Task t = runningQueue.get(i);
-                  t.stop(fast);
-                }
-
-                lock.wait(1000);
-              } catch (InterruptedException e) {
+              for (Task t : runningQueue) {
+                t.stop(fast);
               }
+
+              Thread.sleep(1000);
+            } catch (InterruptedException e) {
             }
           }
 
@@ -472,7 +801,7 @@ public abstract class Task implements Runnable {
    * @return the int
    */
   public static int activeThread() {
-    return executor.getActiveCount();
+    return runner == null ? executor.getActiveCount() : active.get();
   }
 
   /**
@@ -481,7 +810,10 @@ public abstract class Task implements Runnable {
    * @return the int
    */
   public static int idleThread() {
-    return executor.getPoolSize() - executor.getActiveCount();
+    if (runner == null) {
+      return executor.getPoolSize() - executor.getActiveCount();
+    }
+    return runners > 0 ? Math.max(0, runners - active.get()) : 0;
   }
 
   /**
@@ -490,7 +822,343 @@ public abstract class Task implements Runnable {
    * @return the int
    */
   public static int tasksInQueue() {
-    return executor.getQueue().size();
+    int n = executor.getQueue().size();
+    if (runner instanceof ForkJoinPool) {
+      n += ((ForkJoinPool) runner).getQueuedSubmissionCount();
+    }
+    return n;
+  }
+
+  /**
+   * the runnable that dispatch this task to the runner.
+   *
+   * @return the Runnable
+   */
+  private Runnable dispatcher() {
+    if (dispatcher == null) {
+      dispatcher = new Runnable() {
+        public void run() {
+          Group g = group();
+          try {
+            if (g != null && !g.acquire(Task.this)) {
+              // queued in the group
+              return;
+            }
+
+            if (runner == null) {
+              Task.this.run();
+            } else {
+              runner.execute(Task.this);
+            }
+          } catch (RejectedExecutionException e) {
+            pendingQueue.remove(Task.this);
+            log.error("rejected, task=" + getName(), e);
+            if (g != null) {
+              // give back the slot
+              handover(g, g.next());
+            }
+            rejected();
+          }
+        }
+      };
+    }
+    return dispatcher;
+  }
+
+  /**
+   * hand over the slot of the group to the next task, the slot is given back
+   * if the runner rejects it.
+   */
+  private static void handover(Group g, Task n) {
+    while (n != null) {
+      try {
+        (runner != null ? runner : executor).execute(n);
+        return;
+      } catch (RejectedExecutionException e) {
+        pendingQueue.remove(n);
+        log.error("rejected, task=" + n.getName(), e);
+        n.rejected();
+        n = g.next();
+      }
+    }
+  }
+
+  /**
+   * notify the task which will not run this time, the periodic task with fixed
+   * delay is re-armed, as it's re-armed only when run.
+   */
+  private void rejected() {
+    try {
+      onReject();
+    } catch (Throwable e) {
+      log.error(getName(), e);
+    }
+
+    if (mode == DELAY && !stop) {
+      arm(System.currentTimeMillis() + period);
+    }
+  }
+
+  private Group group() {
+    String name = getGroup();
+    return name == null ? null : group(name);
+  }
+
+  /**
+   * get the group by name, create it with default if not defined.
+   *
+   * @param name
+   *          the name of the group
+   * @return the Group
+   */
+  public static Group group(String name) {
+    Group g = groups.get(name);
+    if (g == null) {
+      g = new Group(name, Math.max(1, runners / 4), 1000, Group.REJECT);
+      Group g1 = groups.putIfAbsent(name, g);
+      if (g1 != null) {
+        g = g1;
+      }
+    }
+    return g;
+  }
+
+  /**
+   * define a group.
+   *
+   * @param name
+   *          the name of the group
+   * @param concurrency
+   *          the max running tasks in the group
+   * @param capacity
+   *          the max waiting tasks in the queue of the group
+   * @param policy
+   *          the policy when the queue is full, reject|oldest|caller
+   * @return the Group
+   */
+  public static Group group(String name, int concurrency, int capacity, String policy) {
+    Group g = new Group(name, Math.max(1, concurrency), Math.max(1, capacity), policy);
+    groups.put(name, g);
+    return g;
+  }
+
+  /**
+   * get the statistics of all the groups.
+   *
+   * @return the List of JSON
+   */
+  public static List<JSON> getGroupStats() {
+    List<JSON> l1 = new ArrayList<JSON>();
+    for (Group g : groups.values()) {
+      l1.add(g.stats());
+    }
+    return l1;
+  }
+
+  /**
+   * The {@code Group} Class is the named group of tasks, it has its own bounded
+   * queue ordered by the priority, and the concurrency limit
+   */
+  public static final class Group {
+
+    /** drop the new task when the queue is full */
+    public static final String            REJECT     = "reject";
+
+    /** drop the oldest task in the queue when the queue is full */
+    public static final String            OLDEST     = "oldest";
+
+    /** run the new task in the caller thread when the queue is full */
+    public static final String            CALLER     = "caller";
+
+    static final int                      REJECTED   = 0;
+    static final int                      ACCEPTED   = 1;
+    static final int                      CALLERRUNS = 2;
+
+    private static final Comparator<Task> ORDER      = new Comparator<Task>() {
+
+      @Override
+      public int compare(Task o1, Task o2) {
+        int p1 = o1.priority();
+        int p2 = o2.priority();
+        if (p1 != p2) {
+          return p1 > p2 ? -1 : 1;
+        }
+        return o1.queued < o2.queued ? -1 : (o1.queued == o2.queued ? 0 : 1);
+      }
+
+    };
+
+    public final String                   name;
+    private final int                     concurrency;
+    private final int                     capacity;
+    private final String                  policy;
+
+    private final PriorityQueue<Task>     queue      = new PriorityQueue<Task>(11, ORDER);
+    private final Set<Task>               waiting    = new HashSet<Task>();
+
+    /**
+     * the tasks admitted but not dispatched yet (delayed in the executor),
+     * they are counted in the capacity
+     */
+    private final Set<Task>               admitted   = new HashSet<Task>();
+
+    private int                           running;
+    private long                          seq;
+
+    private long                          submitted;
+    private long                          rejected;
+    private long                          finished;
+    private long                          waited;
+    private long                          maxwait;
+    private long                          cost;
+
+    private Group(String name, int concurrency, int capacity, String policy) {
+      this.name = name;
+      this.concurrency = concurrency;
+      this.capacity = capacity;
+      this.policy = policy;
+    }
+
+    /**
+     * check the queue when schedule a task.
+     *
+     * @param t
+     *          the task
+     * @param inline
+     *          the task can run in the caller, the delayed one can not
+     * @return ACCEPTED, REJECTED or CALLERRUNS
+     */
+    synchronized int admit(Task t, boolean inline) {
+      if (waiting.contains(t) || admitted.contains(t)) {
+        // rescheduled, not a new one
+        return ACCEPTED;
+      }
+
+      if (queue.size() + admitted.size() < capacity) {
+        admitted.add(t);
+        return ACCEPTED;
+      }
+
+      rejected++;
+      if (X.isSame(OLDEST, policy) && !queue.isEmpty()) {
+        final Task t1 = queue.poll();
+        waiting.remove(t1);
+        pendingQueue.remove(t1);
+        log.warn("the group is full, dropped: " + t1.getName() + ", group=" + name);
+
+        // notify out of the lock of the group
+        executor.execute(new Runnable() {
+          public void run() {
+            t1.rejected();
+          }
+        });
+
+        admitted.add(t);
+        return ACCEPTED;
+      } else if (X.isSame(CALLER, policy)) {
+        if (!inline) {
+          // not dropped, over the capacity
+          admitted.add(t);
+          return ACCEPTED;
+        }
+        running++;
+        return CALLERRUNS;
+      }
+      return REJECTED;
+    }
+
+    /**
+     * acquire a slot to run, or put in the queue.
+     *
+     * @param t
+     *          the task
+     * @return true if can run now
+     */
+    synchronized boolean acquire(Task t) {
+      admitted.remove(t);
+      submitted++;
+      if (running < concurrency) {
+        running++;
+        return true;
+      }
+
+      if (waiting.add(t)) {
+        t.queued = seq++;
+        queue.add(t);
+      }
+      return false;
+    }
+
+    /**
+     * cancel the admitted task which will not be dispatched.
+     *
+     * @param t
+     *          the task
+     */
+    synchronized void cancel(Task t) {
+      admitted.remove(t);
+    }
+
+    /**
+     * release the slot, and get the next task which take over the slot.
+     *
+     * @param wait
+     *          the time waited before running
+     * @param cost
+     *          the time of running
+     * @return the next Task, or null if no more
+     */
+    synchronized Task release(long wait, long cost) {
+      finished++;
+      if (wait > 0) {
+        waited += wait;
+        if (wait > maxwait) {
+          maxwait = wait;
+        }
+      }
+      this.cost += cost;
+
+      return next();
+    }
+
+    /**
+     * get the next task which take over the slot, or release the slot if no
+     * more.
+     *
+     * @return the next Task, or null if no more
+     */
+    synchronized Task next() {
+      Task n = queue.poll();
+      if (n == null) {
+        running--;
+      } else {
+        waiting.remove(n);
+      }
+      return n;
+    }
+
+    /**
+     * the statistics of the group.
+     *
+     * @return the JSON
+     */
+    public synchronized JSON stats() {
+      JSON jo = JSON.create();
+      jo.put("name", name);
+      jo.put("concurrency", concurrency);
+      jo.put("capacity", capacity);
+      jo.put("policy", policy);
+      jo.put("running", running);
+      jo.put("queued", queue.size());
+      jo.put("submitted", submitted);
+      jo.put("rejected", rejected);
+      jo.put("finished", finished);
+      jo.put("avgwait", finished > 0 ? waited / finished : 0);
+      jo.put("maxwait", maxwait);
+      jo.put("avgcost", finished > 0 ? cost / finished : 0);
+      return jo;
+    }
+
   }
 
   /**
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The {@code TimingWheel} Class is a hierarchical timing wheel with 4 levels
+ * of 64 slots, the tick is 10ms, so it covers about 46 hours, the later timer
+ * is parked in the last slot and re-armed when cascaded. <br>
+ * arm and cancel are O(1), the expired timers are fired out of the lock by
+ * the thread "task-wheel". <br>
+ * the ticks are counted by System.nanoTime(), the deadline is converted to the
+ * delay when armed, so the timers are not affected by the clock changed.
+ *
+ * @author joe
+ *
+ */
+final class TimingWheel {
+
+  static Log                log    = LogFactory.getLog(TimingWheel.class);
+
+  /** the tick in milliseconds */
+  static final long         TICK   = 10;
+
+  private static final int  BITS   = 6;
+  private static final int  SLOTS  = 1 << BITS;
+  private static final int  MASK   = SLOTS - 1;
+  private static final int  LEVELS = 4;
+  private static final long SPAN   = 1L << (BITS * LEVELS);
+
+  /** the slots, each slot is the sentinel of a double linked list */
+  private final Timer[][]   wheels = new Timer[LEVELS][SLOTS];
+
+  /** the nano time of the tick 0 */
+  private final long        base;
+
+  /** the current tick */
+  private long              now;
+
+  private int               size;
+
+  /**
+   * The {@code Timer} Class is the entry in the wheel, it's reused by the
+   * periodic task, no allocation for each cycle
+   */
+  static final class Timer {
+
+    final Task task;
+    long       deadline;
+    long       expires;
+    Timer      prev;
+    Timer      next;
+
+    Timer(Task task) {
+      this.task = task;
+    }
+
+    boolean armed() {
+      return next != null;
+    }
+
+  }
+
+  TimingWheel() {
+    this(true);
+  }
+
+  /**
+   * create the wheel, the ticks are advanced by the caller if not started.
+   *
+   * @param start
+   *          start the thread "task-wheel" or not
+   */
+  TimingWheel(boolean start) {
+    for (int i = 0; i < LEVELS; i++) {
+      for (int j = 0; j < SLOTS; j++) {
+        Timer h = new Timer(null);
+        h.prev = h;
+        h.next = h;
+        wheels[i][j] = h;
+      }
+    }
+    base = System.nanoTime();
+
+    if (!start) {
+      return;
+    }
+
+    Thread th = new Thread("task-wheel") {
+      public void run() {
+        TimingWheel.this.run();
+      }
+    };
+    th.setDaemon(true);
+    th.start();
+  }
+
+  /**
+   * arm the timer at the deadline, re-arm if armed.
+   *
+   * @param t
+   *          the timer
+   * @param deadline
+   *          the time in milliseconds
+   */
+  synchronized void arm(Timer t, long deadline) {
+    if (t.armed()) {
+      unlink(t);
+    } else {
+      size++;
+    }
+    t.deadline = deadline;
+    t.expires = (elapsed() + deadline - System.currentTimeMillis() + TICK - 1) / TICK;
+    add(t);
+  }
+
+  /**
+   * the milliseconds since the tick 0.
+   */
+  private long elapsed() {
+    return (System.nanoTime() - base) / 1000000;
+  }
+
+  /**
+   * cancel the timer.
+   *
+   * @param t
+   *          the timer
+   * @return true if it was armed
+   */
+  synchronized boolean cancel(Timer t) {
+    if (t.armed()) {
+      unlink(t);
+      size--;
+      return true;
+    }
+    return false;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  private void add(Timer t) {
+    long e = t.expires;
+    long idx = e - now;
+    Timer h;
+    if (idx < 0) {
+      h = wheels[0][(int) (now & MASK)];
+    } else if (idx < SLOTS) {
+      h = wheels[0][(int) (e & MASK)];
+    } else if (idx < 1L << (2 * BITS)) {
+      h = wheels[1][(int) ((e >> BITS) & MASK)];
+    } else if (idx < 1L << (3 * BITS)) {
+      h = wheels[2][(int) ((e >> (2 * BITS)) & MASK)];
+    } else {
+      if (idx >= SPAN) {
+        // park it, re-armed with the deadline when cascaded
+        e = now + SPAN - 1;
+      }
+      h = wheels[3][(int) ((e >> (3 * BITS)) & MASK)];
+    }
+
+    t.prev = h.prev;
+    t.next = h;
+    h.prev.next = t;
+    h.prev = t;
+  }
+
+  private void unlink(Timer t) {
+    t.prev.next = t.next;
+    t.next.prev = t.prev;
+    t.prev = null;
+    t.next = null;
+  }
+
+  /**
+   * move the timers in the slot of the level to lower levels.
+   *
+   * @return the index of the slot
+   */
+  private int cascade(int level) {
+    int idx = (int) ((now >> (level * BITS)) & MASK);
+    Timer h = wheels[level][idx];
+    Timer t = h.next;
+    h.next = h;
+    h.prev = h;
+    while (t != h) {
+      Timer n = t.next;
+      add(t);
+      t = n;
+    }
+    return idx;
+  }
+
+  /**
+   * advance to the tick, collect the expired timers, MUST be called in the lock.
+   */
+  void advance(long tick, List<Timer> expired) {
+    while (now <= tick) {
+      int idx = (int) (now & MASK);
+      if (idx == 0) {
+        for (int level = 1; level < LEVELS; level++) {
+          if (cascade(level) != 0) {
+            break;
+          }
+        }
+      }
+
+      Timer h = wheels[0][idx];
+      Timer t = h.next;
+      while (t != h) {
+        Timer n = t.next;
+        unlink(t);
+        size--;
+        expired.add(t);
+        t = n;
+      }
+      now++;
+    }
+  }
+
+  private void run() {
+    List<Timer> expired = new ArrayList<Timer>();
+    while (true) {
+      try {
+        long ms = elapsed();
+        synchronized (this) {
+          advance(ms / TICK, expired);
+        }
+
+        for (Timer t : expired) {
+          try {
+            t.task.due(t);
+          } catch (Throwable e) {
+            log.error(t.task.getName(), e);
+          }
+        }
+        expired.clear();
+
+        ms = elapsed();
+        Thread.sleep(TICK - ms % TICK);
+      } catch (InterruptedException e) {
+        // ignore
+      } catch (Throwable e) {
+        log.error(e.getMessage(), e);
+      }
+    }
+  }
+
+}
@@ -83,6 +83,11 @@ public class AccessLog extends Bean {
   public static void create(final String ip, final String url, final V v) {
     new Task() {
 
+      @Override
+      public String getGroup() {
+        return "log";
+      }
+
       @Override
       public void onExecute() {
         long created = System.currentTimeMillis();
@@ -108,6 +113,21 @@ public class AccessLog extends Bean {
     return Helper.load(q, s, n, AccessLog.class);
   }
 
+  /**
+   * load the access logs by the cursor token of the prev/next page.
+   *
+   * @param q
+   *          the query and order
+   * @param cursor
+   *          the cursor token, null for the first page
+   * @param n
+   *          the number of the page
+   * @return Beans
+   */
+  public static Beans<AccessLog> seek(W q, String cursor, int n) {
+    return Helper.seek(q, cursor, n, AccessLog.class);
+  }
+
   /**
    * Cleanup.
    */
@@ -50,22 +50,32 @@ public class Menu extends Bean {
    * @param tag
    *          the tag
    */
-  public static void insertOrUpdate(List<JSON> arr, String tag) {
+  public static void insertOrUpdate(final List<JSON> arr, final String tag) {
     if (arr == null) {
       return;
     }
 
-    int len = arr.size();
-    for (int i = 0; i < len; i++) {
-      JSON jo = arr.get(i);
+    /**
+     * all the menus of the module are committed once
+     */
+    Helper.tx(new Helper.Tx() {
 
-      /**
-       * test and create from the "root"
-       */
+      @Override
+      public void run() throws Exception {
+        int len = arr.size();
+        for (int i = 0; i < len; i++) {
+          JSON jo = arr.get(i);
 
-      jo.put("tag", tag);
-      insertOrUpdate(jo, 0);
-    }
+          /**
+           * test and create from the "root"
+           */
+
+          jo.put("tag", tag);
+          insertOrUpdate(jo, 0);
+        }
+      }
+
+    });
   }
 
   public long getId() {
@@ -68,6 +68,21 @@ public class OpLog extends Bean {
     return Helper.load(query, offset, limit, OpLog.class);
   }
 
+  /**
+   * load the oplogs by the cursor token of the prev/next page.
+   *
+   * @param query
+   *          the query and order
+   * @param cursor
+   *          the cursor token, null for the first page
+   * @param limit
+   *          the number of the page
+   * @return Beans
+   */
+  public static Beans<OpLog> seek(W query, String cursor, int limit) {
+    return Helper.seek(query, cursor, limit, OpLog.class);
+  }
+
   // --------------API
   /**
    * record info log
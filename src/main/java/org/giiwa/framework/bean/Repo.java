@@ -539,18 +539,25 @@ public class Repo extends Bean {
             }
           }
 
-          try {
-            if (Helper.exists(getId(), Entity.class)) {
-              Helper.update(getId(), V.create("total", pp).set("tag", tag).set("expired", getExpired()), Entity.class);
-            } else {
-              Helper.insert(
-                  V.create(X.ID, getId()).set("uid", 0).set("total", pp).set("tag", tag).set("expired", getExpired())
-                      .set("created", System.currentTimeMillis()).set("flag", flag).set("name", name),
-                  Entity.class);
+          /**
+           * test and write the entity in one transaction
+           */
+          final long total1 = pp;
+          Helper.tx(new Helper.Tx() {
+
+            @Override
+            public void run() throws Exception {
+              if (Helper.exists(getId(), Entity.class)) {
+                Helper.update(getId(), V.create("total", total1).set("tag", tag).set("expired", getExpired()),
+                    Entity.class);
+              } else {
+                Helper.insert(V.create(X.ID, getId()).set("uid", 0).set("total", total1).set("tag", tag)
+                    .set("expired", getExpired()).set("created", System.currentTimeMillis()).set("flag", flag)
+                    .set("name", name), Entity.class);
+              }
             }
-          } catch (Exception e1) {
-            log.error(e1.getMessage(), e1);
-          }
+
+          });
 
           /**
            * check the free of the user
@@ -156,13 +156,35 @@ public class Role extends Bean {
    */
   public static List<Role> loadAll(List<Long> roles) {
     List<Role> list = new ArrayList<Role>();
-    if (roles != null) {
+    if (roles != null && roles.size() > 0) {
+      /**
+       * warm the roles from cache in one round-trip
+       */
+      List<String> ids = new ArrayList<String>(roles.size());
+      for (long rid : roles) {
+        ids.add("role://" + rid);
+      }
+      Map<String, Role> cached = Cache.getAll(ids);
+
+      Map<String, Role> missed = new HashMap<String, Role>();
       for (long rid : roles) {
-        Role r = Role.load(rid);
+        String id = "role://" + rid;
+        Role r = cached.get(id);
+        if (r == null || r.expired()) {
+          r = Helper.load(rid, Role.class);
+          if (r != null) {
+            r.setExpired(60 * 1000 + System.currentTimeMillis());
+            missed.put(id, r);
+          }
+        }
         if (r != null) {
           list.add(r);
         }
       }
+
+      if (missed.size() > 0) {
+        Cache.setAll(missed);
+      }
     }
     return list;
   }
@@ -183,21 +205,6 @@ public class Role extends Bean {
     return false;
   }
 
-  private static Role load(long rid) {
-    Role r = Cache.get("role://" + rid);
-
-    if (r == null || r.expired()) {
-      r = Helper.load(rid, Role.class);
-
-      if (r != null) {
-        r.setExpired(60 * 1000 + System.currentTimeMillis());
-        Cache.set("role://" + rid, r);
-      }
-    }
-
-    return r;
-  }
-
   /**
    * Load by name.
    * 
@@ -252,14 +259,23 @@ public class Role extends Bean {
     return Helper.update(this.getId(), v.set("updated", System.currentTimeMillis()), Role.class);
   }
 
-  public void setAccess(String[] accesses) {
+  public void setAccess(final String[] accesses) {
     if (accesses != null) {
-      Helper.delete(W.create("rid", this.getId()), RoleAccess.class);
+      final long rid = this.getId();
+      Helper.tx(new Helper.Tx() {
+
+        @Override
+        public void run() throws Exception {
+          Helper.delete(W.create("rid", rid), RoleAccess.class);
+
+          List<V> l1 = new ArrayList<V>(accesses.length);
+          for (String a : accesses) {
+            l1.add(V.create("rid", rid).set("name", a).set(X.ID, UID.id(rid, a)));
+          }
+          Helper.insert(l1, RoleAccess.class);
+        }
 
-      for (String a : accesses) {
-        Helper.insert(V.create("rid", this.getId()).set("name", a).set(X.ID, UID.id(this.getId(), a)),
-            RoleAccess.class);
-      }
+      });
     }
   }
 
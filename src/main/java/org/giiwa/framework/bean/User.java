@@ -486,11 +486,18 @@ public class User extends Bean {
    * @param roles
    *          the list of role id
    */
-  public void setRoles(List<Long> roles) {
-    this.removeAllRoles();
-    for (long rid : roles) {
-      this.setRole(rid);
-    }
+  public void setRoles(final List<Long> roles) {
+    Helper.tx(new Helper.Tx() {
+
+      @Override
+      public void run() throws Exception {
+        removeAllRoles();
+        for (long rid : roles) {
+          setRole(rid);
+        }
+      }
+
+    });
   }
 
   /**
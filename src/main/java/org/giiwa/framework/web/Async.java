@@ -0,0 +1,286 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The {@code Async} Class is the async context of the request, it's used by
+ * the handler of {@code @Path(async=true)}. <br>
+ * the framework is compiled with servlet 2.5, so the servlet 3.0 async api is
+ * called by reflection, if the container or the filter does not support async,
+ * the handler runs in the request thread as usual. <br>
+ * when timeout, the response is 503 if not committed, and the context is
+ * completed only once whichever first; the handler writes to the response
+ * returned by {@link #wrap(HttpServletResponse)}, which fails once completed.
+ *
+ * @author joe
+ *
+ */
+final class Async {
+
+  static Log                   log  = LogFactory.getLog(Async.class);
+
+  private static Method        isAsyncSupported;
+  private static Method        startAsync;
+  private static Method        setTimeout;
+  private static Method        addListener;
+  private static Method        complete;
+  private static Class<?>      listener;
+
+  private final Object         context;
+  private final AtomicBoolean  done = new AtomicBoolean(false);
+
+  static {
+    try {
+      isAsyncSupported = ServletRequest.class.getMethod("isAsyncSupported");
+      startAsync = ServletRequest.class.getMethod("startAsync", ServletRequest.class, ServletResponse.class);
+
+      Class<?> c = startAsync.getReturnType();
+      listener = Class.forName("javax.servlet.AsyncListener", false, c.getClassLoader());
+      setTimeout = c.getMethod("setTimeout", long.class);
+      addListener = c.getMethod("addListener", listener);
+      complete = c.getMethod("complete");
+    } catch (Throwable e) {
+      startAsync = null;
+      log.info("the servlet async is not supported, the async handler will run in the request thread");
+    }
+  }
+
+  private Async(Object context) {
+    this.context = context;
+  }
+
+  /**
+   * start the async context of the request.
+   *
+   * @param req
+   *          the request
+   * @param resp
+   *          the response
+   * @param timeout
+   *          the timeout in milliseconds, 0 means no timeout
+   * @return the Async, or null if not supported
+   */
+  static Async start(HttpServletRequest req, final HttpServletResponse resp, long timeout) {
+    if (startAsync == null) {
+      return null;
+    }
+
+    try {
+      if (!(Boolean) isAsyncSupported.invoke(req)) {
+        return null;
+      }
+
+      final Async a = new Async(startAsync.invoke(req, req, resp));
+      setTimeout.invoke(a.context, timeout);
+      addListener.invoke(a.context,
+          Proxy.newProxyInstance(listener.getClassLoader(), new Class<?>[] { listener }, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+              String name = m.getName();
+              if (m.getDeclaringClass() == Object.class) {
+                if ("equals".equals(name)) {
+                  return proxy == args[0];
+                } else if ("hashCode".equals(name)) {
+                  return System.identityHashCode(proxy);
+                }
+                return "async-listener";
+              }
+
+              if ("onTimeout".equals(name) || "onError".equals(name)) {
+                log.warn("async " + name);
+                synchronized (a) {
+                  if (!a.done.get() && !resp.isCommitted()) {
+                    try {
+                      resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    } catch (Exception e) {
+                      // ignore
+                    }
+                  }
+                  a.complete();
+                }
+              }
+              return null;
+            }
+
+          }));
+
+      return a;
+    } catch (Throwable e) {
+      log.warn("start async failed", e);
+    }
+
+    return null;
+  }
+
+  /**
+   * test the async context is completed.
+   *
+   * @return true if completed
+   */
+  boolean isCompleted() {
+    return done.get();
+  }
+
+  /**
+   * complete the async context, only the first one works.
+   *
+   * @return true if completed by this call
+   */
+  synchronized boolean complete() {
+    if (done.compareAndSet(false, true)) {
+      try {
+        complete.invoke(context);
+        return true;
+      } catch (Throwable e) {
+        log.warn("complete async failed", e);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * wrap the response for the handler, the output fails with IOException after
+   * the context completed (e.g. timeout), as the response may be recycled by
+   * the container.
+   *
+   * @param resp
+   *          the response
+   * @return the HttpServletResponse
+   */
+  HttpServletResponse wrap(HttpServletResponse resp) {
+    return new HttpServletResponseWrapper(resp) {
+
+      private ServletOutputStream out;
+      private PrintWriter         writer;
+
+      @Override
+      public ServletOutputStream getOutputStream() throws IOException {
+        if (out == null) {
+          final ServletOutputStream o = super.getOutputStream();
+          out = new ServletOutputStream() {
+
+            @Override
+            public void write(int b) throws IOException {
+              synchronized (Async.this) {
+                check();
+                o.write(b);
+              }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+              synchronized (Async.this) {
+                check();
+                o.write(b, off, len);
+              }
+            }
+
+            @Override
+            public void flush() throws IOException {
+              synchronized (Async.this) {
+                check();
+                o.flush();
+              }
+            }
+
+          };
+        }
+        return out;
+      }
+
+      @Override
+      public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+          final PrintWriter w = super.getWriter();
+          writer = new PrintWriter(new Writer() {
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+              synchronized (Async.this) {
+                check();
+                w.write(cbuf, off, len);
+              }
+            }
+
+            @Override
+            public void flush() throws IOException {
+              synchronized (Async.this) {
+                check();
+                w.flush();
+              }
+            }
+
+            @Override
+            public void close() {
+              // closed by the container
+            }
+
+          });
+        }
+        return writer;
+      }
+
+      @Override
+      public void sendError(int sc) throws IOException {
+        synchronized (Async.this) {
+          check();
+          super.sendError(sc);
+        }
+      }
+
+      @Override
+      public void sendError(int sc, String msg) throws IOException {
+        synchronized (Async.this) {
+          check();
+          super.sendError(sc, msg);
+        }
+      }
+
+      @Override
+      public void sendRedirect(String location) throws IOException {
+        synchronized (Async.this) {
+          check();
+          super.sendRedirect(location);
+        }
+      }
+
+    };
+  }
+
+  private void check() throws IOException {
+    if (done.get()) {
+      throw new IOException("the async is completed");
+    }
+  }
+
+}
@@ -29,7 +29,6 @@ import org.giiwa.core.bean.X;
 import org.giiwa.core.bean.Helper.V;
 import org.giiwa.framework.bean.AccessLog;
 import org.giiwa.framework.bean.User;
-import org.giiwa.framework.web.Model.HTTPMethod;
 
 /**
  * load module, default module
@@ -133,94 +132,72 @@ public class Controller {
     Tps.add(1);
 
     /**
-     * test and load from cache first
+     * resolve the model, the method and the params in one lookup
      */
-    Model mo = Module.home.loadModelFromCache(method.method, uri);
-    if (mo != null) {
-
-      Path p = mo.dispatch(uri, req, resp, method);
-
-      if (p == null || p.accesslog()) {
-        if (log.isInfoEnabled())
-          log.info(
-              method + " " + uri + " - " + mo.getStatus() + " - " + t.past() + "ms -" + mo.getRemoteHost() + " " + mo);
-
-        V v = V.create("method", method.toString()).set("cost", t.past()).set("sid", mo.sid());
-        User u1 = mo.getUser();
-        if (u1 != null) {
-          v.set("uid", u1.getId()).set("username", u1.get("name"));
-        }
-        if (AccessLog.isOn())
-          AccessLog.create(mo.getRemoteHost(), uri, v.set("status", mo.getStatus()).set("client", mo.browser())
-              .set("module", mo.module == null ? X.EMPTY : mo.module.getName()).set("model", mo.getClass().getName()));
-      }
-
-      // Counter.max("web.request.max", t.past(), uri);
-      return;
-    }
-
-    if (X.isSame("/", uri) || !_dispatch(uri, req, resp, method, t)) {
-
+    Router.Match r = Router.find(method.method, uri);
+    if (r == null || (!r.exact() && r.mapping == null)) {
+      /**
+       * the uri is not a model or a method of model, try the welcome
+       */
       for (String suffix : welcomes) {
-        if (_dispatch(uri + "/" + suffix, req, resp, method, t)) {
-          return;
+        Router.Match r1 = Router.find(method.method, uri + "/" + suffix);
+        if (r1 != null && r1.exact()) {
+          r = r1;
+          break;
         }
       }
+    }
 
-      /**
-       * get back of the uri, and set the path to the model if found, and the
-       * path instead
-       */
-      int i = uri.lastIndexOf("/");
-      while (i > 0) {
-        String path = uri.substring(i + 1);
-        String u = uri.substring(0, i);
-        mo = getModel(method.method, u);
-        if (mo != null) {
-
-          mo.setPath(path);
-          Path p = mo.dispatch(u, req, resp, method);
-
-          if (p == null || p.accesslog()) {
-            if (log.isInfoEnabled())
-              log.info(method + " " + uri + " - " + mo.getStatus() + " - " + t.past() + "ms -" + mo.getRemoteHost()
-                  + " " + mo);
-
-            V v = V.create("method", method.toString()).set("cost", t.past()).set("sid", mo.sid());
-            User u1 = mo.getUser();
-            if (u1 != null) {
-              v.set("uid", u1.getId()).set("username", u1.get("name"));
-            }
-            if (AccessLog.isOn())
-              AccessLog.create(mo.getRemoteHost(), uri,
-                  v.set("status", mo.getStatus()).set("client", mo.browser())
-                      .set("module", mo.module == null ? X.EMPTY : mo.module.getName())
-                      .set("model", mo.getClass().getName()));
-          }
-
-          // Counter.max("web.request.max", t.past(), uri);
-          return;
-        }
-        i = uri.lastIndexOf("/", i - 1);
+    Model mo = null;
+    Path p = null;
+    if (r != null) {
+      try {
+        mo = r.create();
+        mo.created = t;
+        p = mo.dispatch(r.uri, req, resp, method);
+      } catch (Exception e) {
+        log.error(uri, e);
       }
+    }
 
+    if (mo == null) {
       /**
-       * not found, then using dummymodel instead, and cache it
+       * not found, then using dummymodel instead <br>
+       * let's front-end (CDN, http server) do the the "static" resource cache
        */
       mo = new DefaultModel();
       mo.module = Module.load(0);
-
-      /**
-       * do not put in model cache, <br>
-       * let's front-end (CDN, http server) do the the "static" resource cache
-       */
-      // Module.home.modelMap.put(uri, (Class<Model>)
-      // mo.getClass());
       mo.dispatch(uri, req, resp, method);
+    }
+
+    if (mo.async == null) {
+      access(mo, p, uri, method, t);
+    }
+
+    // Counter.max("web.request.max", t.past(), uri);
+  }
 
+  /**
+   * log the access of the request, the async handler is logged by itself when
+   * completed, with the status and the time of the handler.
+   *
+   * @param mo
+   *          the model
+   * @param p
+   *          the path of the handler, null if not
+   * @param uri
+   *          the uri
+   * @param method
+   *          the method
+   * @param t
+   *          the time of the request started
+   */
+  static void access(Model mo, Path p, String uri, Model.HTTPMethod method, TimeStamp t) {
+    if (p == null || p.accesslog()) {
       if (log.isInfoEnabled())
         log.info(
             method + " " + uri + " - " + mo.getStatus() + " - " + t.past() + "ms -" + mo.getRemoteHost() + " " + mo);
+
       V v = V.create("method", method.toString()).set("cost", t.past()).set("sid", mo.sid());
       User u1 = mo.getUser();
       if (u1 != null) {
@@ -229,48 +206,7 @@ public class Controller {
       if (AccessLog.isOn())
         AccessLog.create(mo.getRemoteHost(), uri, v.set("status", mo.getStatus()).set("client", mo.browser())
             .set("module", mo.module == null ? X.EMPTY : mo.module.getName()).set("model", mo.getClass().getName()));
-
-      // Counter.max("web.request.max", t.past(), uri);
     }
-
   }
 
-  private static boolean _dispatch(String uri, HttpServletRequest req, HttpServletResponse resp, HTTPMethod method,
-      TimeStamp t) {
-    /**
-     * load model from the modules
-     */
-
-    while (uri.indexOf("//") > -1) {
-      uri = uri.replaceAll("//", "/");
-    }
-
-    // log.debug("dispatch, uri=" + uri);
-
-    Model mo = getModel(method.method, uri);
-    if (mo != null) {
-
-      Path p = mo.dispatch(uri, req, resp, method);
-
-      if (p == null || p.accesslog()) {
-        if (log.isInfoEnabled())
-          log.info(
-              method + " " + uri + " - " + mo.getStatus() + " - " + t.past() + "ms -" + mo.getRemoteHost() + " " + mo);
-
-        V v = V.create("method", method.toString()).set("cost", t.past()).set("sid", mo.sid());
-        User u1 = mo.getUser();
-        if (u1 != null) {
-          v.set("uid", u1.getId()).set("username", u1.get("name"));
-        }
-        if (AccessLog.isOn())
-          AccessLog.create(mo.getRemoteHost(), uri, v.set("status", mo.getStatus()).set("client", mo.browser())
-              .set("module", mo.module == null ? X.EMPTY : mo.module.getName()).set("model", mo.getClass().getName()));
-      }
-
-      // Counter.max("web.request.max", t.past(), uri);
-      return true;
-    } else {
-      return false;
-    }
-  }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The {@code FileIndex} Class is the index of the resolved file of the
+ * resource in the modules, the key is the module id and the resource, the
+ * value is the file of the winning module and it's a file or directory, or a
+ * miss, so the request does not stat the file again. <br>
+ * the index is cleared when any file changed in the view roots, which watched
+ * by the thread "file-watch", or when the modules changed; the file resolved
+ * before the last clear is not put, see {@link #generation()}.
+ *
+ * @author joe
+ *
+ */
+final class FileIndex {
+
+  static Log                                            log        = LogFactory.getLog(FileIndex.class);
+
+  /** the max of the remembered misses */
+  private static final int                              MAXMISSES  = 10000;
+
+  /** the file not exists */
+  static final Entry                                    MISS       = new Entry(null, false);
+
+  private static final ConcurrentHashMap<String, Entry> index      = new ConcurrentHashMap<String, Entry>();
+
+  private static final AtomicInteger                    misses     = new AtomicInteger(0);
+
+  /** increased when cleared */
+  private static final AtomicLong                       generation = new AtomicLong(0);
+
+  private static WatchService                           watcher;
+
+  /**
+   * get the resolved file.
+   *
+   * @param key
+   *          the key
+   * @return the Entry, MISS if not exists, or null if not resolved
+   */
+  static Entry get(String key) {
+    return index.get(key);
+  }
+
+  /**
+   * get the generation, it should be got before resolving the file, and passed
+   * to {@link #put(String, File, long)}.
+   *
+   * @return the generation
+   */
+  static long generation() {
+    return generation.get();
+  }
+
+  /**
+   * put the resolved file, null for not exists; dropped if cleared since the
+   * generation, as the file may be changed while resolving.
+   *
+   * @param key
+   *          the key
+   * @param f
+   *          the file
+   * @param gen
+   *          the generation before resolving
+   * @return the Entry
+   */
+  static Entry put(String key, File f, long gen) {
+    Entry e;
+    if (f == null) {
+      if (misses.incrementAndGet() > MAXMISSES) {
+        // too many misses, may be scanned, start over
+        clear();
+      }
+      e = MISS;
+    } else {
+      e = new Entry(f, f.isFile());
+    }
+
+    if (generation.get() != gen) {
+      return e;
+    }
+    index.put(key, e);
+
+    if (generation.get() != gen) {
+      // cleared while putting
+      index.remove(key, e);
+    }
+    return e;
+  }
+
+  /**
+   * clear all.
+   */
+  static void clear() {
+    generation.incrementAndGet();
+    index.clear();
+    misses.set(0);
+  }
+
+  /**
+   * watch the view root of the module, all the sub directories are registered.
+   *
+   * @param root
+   *          the view root
+   */
+  static synchronized void watch(String root) {
+    try {
+      if (watcher == null) {
+        watcher = FileSystems.getDefault().newWatchService();
+
+        Thread th = new Thread("file-watch") {
+          public void run() {
+            FileIndex.run();
+          }
+        };
+        th.setDaemon(true);
+        th.start();
+      }
+
+      File f = new File(root);
+      if (f.isDirectory()) {
+        register(f.toPath());
+      }
+    } catch (Exception e) {
+      log.warn("can not watch the files, root=" + root, e);
+    }
+  }
+
+  private static void register(Path dir) throws IOException {
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+
+      @Override
+      public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+        d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        return FileVisitResult.CONTINUE;
+      }
+
+    });
+  }
+
+  private static void run() {
+    while (true) {
+      try {
+        WatchKey key = watcher.take();
+        Path dir = (Path) key.watchable();
+
+        for (WatchEvent<?> e : key.pollEvents()) {
+          if (e.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+            Path p = dir.resolve((Path) e.context());
+            if (Files.isDirectory(p)) {
+              register(p);
+            }
+          }
+        }
+        key.reset();
+
+        clear();
+
+        if (log.isDebugEnabled())
+          log.debug("file changed in " + dir + ", index cleared");
+
+      } catch (InterruptedException e) {
+        return;
+      } catch (Throwable e) {
+        log.error(e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * the resolved file, and it's a file or directory.
+   */
+  static final class Entry {
+    final File    file;
+    final boolean isFile;
+
+    Entry(File file, boolean isFile) {
+      this.file = file;
+      this.isFile = isFile;
+    }
+  }
+
+}
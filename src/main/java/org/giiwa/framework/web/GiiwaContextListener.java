@@ -15,6 +15,7 @@
 package org.giiwa.framework.web;
 
 import java.io.File;
+import java.util.Iterator;
 
 import javax.servlet.*;
 
@@ -119,7 +120,36 @@ public class GiiwaContextListener implements ServletContextListener {
 
       Helper.init(conf);
 
-      Task.init(conf.getInt("thread.number", 20));
+      int threads = conf.getInt("thread.number", 20);
+      Task.init(threads, conf.getString("task.executor", Task.POOL));
+
+      /**
+       * the default task groups of the framework, the access log, io and cron
+       * must not be dropped, run in the caller when the queue is full
+       */
+      Task.group("log", Math.max(1, threads / 10), 10000, Task.Group.CALLER);
+      Task.group("io", Math.max(1, threads / 10), 100, Task.Group.CALLER);
+      Task.group("cron", Math.max(1, threads / 4), 1000, Task.Group.CALLER);
+
+      /**
+       * the @Path(async=true) handler, run in the request thread when the
+       * queue is full
+       */
+      Task.group("async", Math.max(1, threads / 2), 1000, Task.Group.CALLER);
+
+      /**
+       * the task groups, task.group.[name]=[concurrency],[capacity],[policy]
+       */
+      Iterator<?> it = conf.getKeys("task.group");
+      while (it.hasNext()) {
+        String key = (String) it.next();
+        if (!key.startsWith("task.group.")) {
+          continue;
+        }
+        String[] ss = conf.getStringArray(key);
+        Task.group(key.substring("task.group.".length()), X.toInt(ss[0].trim(), 1),
+            ss.length > 1 ? X.toInt(ss[1], 1000) : 1000, ss.length > 2 ? ss[2].trim() : Task.Group.REJECT);
+      }
 
       /**
        * initialize the controller, this MUST place in the end !:-)
@@ -15,6 +15,9 @@
 package org.giiwa.framework.web;
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.regex.Matcher;
@@ -32,9 +35,11 @@ import org.giiwa.core.base.Html;
 import org.giiwa.core.bean.Bean;
 import org.giiwa.core.bean.Beans;
 import org.giiwa.core.bean.Helper;
+import org.giiwa.core.bean.TimeStamp;
 import org.giiwa.core.bean.X;
 import org.giiwa.core.conf.Global;
 import org.giiwa.core.json.JSON;
+import org.giiwa.core.task.Task;
 import org.giiwa.framework.bean.*;
 import org.giiwa.framework.web.view.View;
 
@@ -203,6 +208,47 @@ public class Model {
     return _currentmodule.get();
   }
 
+  /**
+   * invoke the method of the path, and log the request if required.
+   */
+  private void invoke(PathMapping oo, Object[] params) {
+    Path pp = oo.path;
+
+    /**
+     * invoke the method
+     */
+    try {
+      oo.invoke(this, params);
+
+      if ((pp.log() & method.method) > 0) {
+
+        /**
+         * clone a new one
+         */
+        JSON jo = JSON.fromObject(this.getJSON());
+        if (jo.has("password")) {
+          jo.put("password", "******");
+        }
+        if (jo.has("pwd")) {
+          jo.put("pwd", "******");
+        }
+        if (jo.has("passwd")) {
+          jo.put("passwd", "******");
+        }
+
+        OpLog.info(this.getClass(), pp.path(), jo.toString(), getUser(), this.getRemoteHost());
+
+      }
+    } catch (Exception e) {
+      if (log.isErrorEnabled())
+        log.error(e.getMessage(), e);
+
+      OpLog.error(this.getClass(), pp.path(), e.getMessage(), e, getUser(), this.getRemoteHost());
+
+      error(e);
+    }
+  }
+
   private Path process() throws Exception {
 
     if (pathmapping != null) {
@@ -212,145 +258,171 @@ public class Model {
         path = X.NONE;
       }
 
-      Map<String, PathMapping> methods = pathmapping.get(this.method.method);
-
-      // log.debug(this.method + "=>" + methods);
+      /**
+       * the method resolved by the router, otherwise match it here
+       */
+      PathMapping oo = mapping;
+      Object[] params = this.params;
+      if (oo == null) {
+        Map<String, PathMapping> methods = pathmapping.get(this.method.method);
+        if (methods != null) {
+          for (String s : methods.keySet()) {
+            if (X.isEmpty(s)) {
+              continue;
+            }
 
-      if (methods != null) {
-        for (String s : methods.keySet()) {
-          if (X.isEmpty(s)) {
-            continue;
+            PathMapping o1 = methods.get(s);
+            Matcher m1 = o1.pattern.matcher(path);
+            if (m1.matches()) {
+              /**
+               * get all the params
+               */
+              oo = o1;
+              params = new Object[m1.groupCount()];
+              for (int i = 0; i < params.length; i++) {
+                params[i] = m1.group(i + 1);
+              }
+              break;
+            }
           }
+        }
+      }
 
+      if (oo != null) {
+        /**
+         * catch the exception avoid break the whole block
+         */
+        try {
+          Path pp = oo.path;
           /**
-           * catch the exception avoid break the whole block
+           * check the access and login status
            */
-          try {
-            /**
-             * match test in outside first
-             */
-            // log.debug(s + "=>" + this.path);
+          if (pp.login()) {
 
-            if (path != null && path.matches(s)) {
+            // check the system has been initialized
+            // ?
+            if (!Helper.isConfigured()) {
+              this.redirect("/setup");
+              return null;
+            }
 
+            login = this.getUser();
+            if (login == null) {
               /**
-               * create the pattern
+               * login require
                */
-              PathMapping oo = methods.get(s);
-              if (oo != null) {
-                Pattern p = oo.pattern;
-                Matcher m1 = p.matcher(path);
-
-                /**
-                 * find
-                 */
-                Object[] params = null;
-                if (m1.find()) {
-                  /**
-                   * get all the params
-                   */
-                  params = new Object[m1.groupCount()];
-                  for (int i = 0; i < params.length; i++) {
-                    params[i] = m1.group(i + 1);
-                  }
-                }
+              gotoLogin();
+              return pp;
+            }
 
-                Path pp = oo.path;
-                /**
-                 * check the access and login status
-                 */
-                if (pp.login()) {
-
-                  // check the system has been initialized
-                  // ?
-                  if (!Helper.isConfigured()) {
-                    this.redirect("/setup");
-                    return null;
-                  }
+            if (!X.NONE.equals(pp.access()) && !login.hasAccess(pp.access().split("\\|"))) {
+              /**
+               * no access
+               */
+              this.put("lang", lang);
+              this.deny();
 
-                  login = this.getUser();
-                  if (login == null) {
-                    /**
-                     * login require
-                     */
-                    gotoLogin();
-                    return pp;
-                  }
+              OpLog.warn(this.getClass(), pp.path(), "deny the access, requred: " + lang.get(pp.access()),
+                  getUser(), this.getRemoteHost());
+              return pp;
+            }
+          }
 
-                  if (!X.NONE.equals(pp.access()) && !login.hasAccess(pp.access().split("\\|"))) {
-                    /**
-                     * no access
-                     */
-                    this.put("lang", lang);
-                    this.deny();
+          /**
+           * send the cached page, the method is not invoked
+           */
+          if (pp.cache() > 0 && this.method.method == METHOD_GET) {
+            String key = cachekey(pp);
+            if (key != null) {
+              if (PageCache.send(key, this)) {
+                return pp;
+              }
+              cachekey = key;
+              cachettl = pp.cache();
+            }
+          }
 
-                    OpLog.warn(this.getClass(), pp.path(), "deny the access, requred: " + lang.get(pp.access()),
-                        getUser(), this.getRemoteHost());
-                    return pp;
-                  }
-                }
+          /**
+           * set the "global" attribute for the model
+           */
+          switch (this.method.method) {
+            case METHOD_POST:
+            case METHOD_GET:
+            case METHOD_PUT:
 
-                /**
-                 * set the "global" attribute for the model
-                 */
-                switch (this.method.method) {
-                  case METHOD_POST:
-                  case METHOD_GET:
-                  case METHOD_PUT:
+              createQuery();
 
-                    createQuery();
+              break;
+          }
 
-                    break;
+          /**
+           * run the handler in the task group "async" if required and
+           * supported, the request thread is released
+           */
+          if (pp.async()) {
+            async = Async.start(req, resp,
+                pp.timeout() < 0 ? Global.getLong("web.async.timeout", X.AMINUTE) : pp.timeout());
+            if (async != null) {
+              resp = async.wrap(resp);
+              this.put("response", resp);
+
+              final PathMapping o1 = oo;
+              final Object[] p1 = params;
+              final Path pp1 = pp;
+              new Task() {
+
+                @Override
+                public String getGroup() {
+                  return "async";
                 }
 
-                /**
-                 * invoke the method
-                 */
-                Method m = oo.method;
-                // log.debug("invoking: " + m.getName());
-
-                try {
-                  m.invoke(this, params);
-
-                  if ((pp.log() & method.method) > 0) {
-
-                    /**
-                     * clone a new one
-                     */
-                    JSON jo = JSON.fromObject(this.getJSON());
-                    if (jo.has("password")) {
-                      jo.put("password", "******");
-                    }
-                    if (jo.has("pwd")) {
-                      jo.put("pwd", "******");
-                    }
-                    if (jo.has("passwd")) {
-                      jo.put("passwd", "******");
-                    }
-
-                    OpLog.info(this.getClass(), pp.path(), jo.toString(), getUser(), this.getRemoteHost());
+                @Override
+                public String getName() {
+                  return "async." + uri;
+                }
 
+                @Override
+                public void onExecute() {
+                  _currentmodule.set(module);
+                  try {
+                    invoke(o1, p1);
+                    PageCache.commit(Model.this);
+                  } finally {
+                    _currentmodule.remove();
+                    Module.home.after(Model.this);
+                    completed(pp1);
                   }
-                } catch (Exception e) {
-                  if (log.isErrorEnabled())
-                    log.error(e.getMessage(), e);
-
-                  OpLog.error(this.getClass(), pp.path(), e.getMessage(), e, getUser(), this.getRemoteHost());
+                }
 
-                  error(e);
+                @Override
+                public void onReject() {
+                  // the group is full, not served
+                  try {
+                    status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+                    resp.sendError(status);
+                  } catch (Exception e) {
+                    log.warn(uri, e);
+                  } finally {
+                    Module.home.after(Model.this);
+                    completed(pp1);
+                  }
                 }
 
-                return pp;
-              }
+              }.schedule(0);
+              return pp;
             }
-          } catch (Exception e) {
-            if (log.isErrorEnabled())
-              log.error(s, e);
+          }
 
-            OpLog.error(this.getClass(), path, e.getMessage(), e, getUser(), this.getRemoteHost());
+          invoke(oo, params);
+          PageCache.commit(this);
+          return pp;
+        } catch (Exception e) {
+          if (log.isErrorEnabled())
+            log.error(path, e);
 
-            error(e);
-          }
+          OpLog.error(this.getClass(), path, e.getMessage(), e, getUser(), this.getRemoteHost());
+
+          error(e);
         }
       }
     } // end of "pathmapping is not null
@@ -397,6 +469,18 @@ public class Model {
                 }
               }
             }
+
+            // send the cached page, onGet is not invoked
+            if (p.cache() > 0) {
+              String key = cachekey(p);
+              if (key != null) {
+                if (PageCache.send(key, this)) {
+                  return null;
+                }
+                cachekey = key;
+                cachettl = p.cache();
+              }
+            }
           }
         }
 
@@ -460,6 +544,8 @@ public class Model {
       }
 
     } // end default handler
+
+    PageCache.commit(this);
     return null;
 
   }
@@ -472,8 +558,7 @@ public class Model {
     uri = uri.replaceAll("//", "/");
     // log.debug("staticfile=" + uri);
 
-    File f = Module.home.getFile(uri);
-    if (f != null && f.exists() && f.isFile()) {
+    if (Module.home.isFile(uri)) {
       this.set(this.getJSON());
 
       this.set("me", this.getUser());
@@ -556,7 +641,9 @@ public class Model {
     } finally {
       _currentmodule.remove();
 
-      Module.home.after(this);
+      if (async == null) {
+        Module.home.after(this);
+      }
     }
     return null;
   }
@@ -844,6 +931,20 @@ public class Model {
     return;
   }
 
+  /**
+   * Sets Beans that loaded by Helper.seek(...) back to Model, the prev/next
+   * links are created by the cursor tokens, and set as "seeks".
+   *
+   * @param bs
+   *          the Beans
+   */
+  final public void set(Beans<? extends Bean> bs) {
+    if (bs != null) {
+      this.set("list", bs.getList());
+      this.set("seeks", Paging.seek(this.query, bs));
+    }
+  }
+
   /**
    * Sets Map back to the Model which accessed by view.
    * 
@@ -1824,15 +1925,48 @@ public class Model {
    * @return boolean
    */
   final public boolean show(String viewname) {
+    String key = cachekey;
+    cachekey = null;
+    return render(viewname, key, cachettl);
+  }
+
+  /**
+   * render the template and cache the page with the key, the cached page is
+   * shown if not expired, the template or the settings not changed. <br>
+   * the page is cached by the view, the locale, the roles of the login user
+   * and the key, so it should not have anything of the user itself.
+   * 
+   * @param viewname
+   *          the viewname template
+   * @param key
+   *          the key of the page, e.g. the params
+   * @param ttl
+   *          the time to live in milliseconds
+   * @return boolean
+   */
+  final public boolean show(String viewname, String key, long ttl) {
+    User u = getUser();
+    return render(viewname, viewname + "|" + getLocale() + "|" + (u == null ? X.EMPTY : roles(u)) + "|" + key, ttl);
+  }
+
+  private boolean render(String viewname, String key, long ttl) {
 
     try {
+      if (key != null && PageCache.send(key, this)) {
+        return false;
+      }
+
       this.set("path", this.path);
       this.set("query", this.query);
 
       // TimeStamp t1 = TimeStamp.create();
       File file = Module.home.getFile(viewname);
-      if (file != null && file.exists()) {
-        View.merge(file, this, viewname);
+      if (file != null) {
+        if (key == null) {
+          View.merge(file, this, viewname);
+        } else {
+          PageCache.merge(key, ttl, file, this, viewname);
+        }
 
         // if (log.isDebugEnabled())
         // log.debug("showing viewname = " + viewname + ", cost: " + t1.past() +
@@ -1850,6 +1984,70 @@ public class Model {
     return false;
   }
 
+  /**
+   * the key of the cached page of the path, by the uri, the locale and the
+   * params in "vary".
+   *
+   * @return the key, null if not cached for the login user
+   */
+  /**
+   * log the access of the async handler, and complete the async context.
+   */
+  private void completed(Path pp) {
+    try {
+      // the request is recycled if completed by timeout
+      if (!async.isCompleted()) {
+        Controller.access(this, pp, uri, method, created == null ? TimeStamp.create() : created);
+      }
+    } catch (Exception e) {
+      log.error(uri, e);
+    } finally {
+      async.complete();
+    }
+  }
+
+  private String cachekey(Path pp) {
+    StringBuilder sb = new StringBuilder(uri).append('|').append(path == null ? X.EMPTY : path).append('|')
+        .append(getLocale());
+
+    boolean role = false;
+    if (!X.isEmpty(pp.vary()) && !X.NONE.equals(pp.vary())) {
+      for (String s : pp.vary().split("\\|")) {
+        if ("role".equals(s)) {
+          role = true;
+        } else {
+          sb.append('|').append(s).append('=').append(this.getString(s));
+        }
+      }
+    }
+
+    User u = getUser();
+    if (u != null) {
+      if (!role) {
+        return null;
+      }
+      sb.append("|role=").append(roles(u));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * the sorted role ids of the user
+   */
+  private static String roles(User u) {
+    Roles r = u.getRole();
+    if (r == null || r.getList() == null) {
+      return X.EMPTY;
+    }
+
+    long[] ids = new long[r.getList().size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = r.getList().get(i).getId();
+    }
+    Arrays.sort(ids);
+    return Arrays.toString(ids);
+  }
+
   /**
    * On get requested from HTTP GET method.
    */
@@ -1929,6 +2127,9 @@ public class Model {
     if (log.isErrorEnabled())
       log.error(e.getMessage(), e);
 
+    cachekey = null;
+    cachepage = null;
+
     StringWriter sw = new StringWriter();
     PrintWriter out = new PrintWriter(sw);
     e.printStackTrace(out);
@@ -1964,6 +2165,9 @@ public class Model {
     if (log.isWarnEnabled())
       log.warn(this.getClass().getName() + "[" + this.getURI() + "]");
 
+    cachekey = null;
+    cachepage = null;
+
     Model m = Module.home.getModel(method.method, "/notfound");
     // log.debug("m=" + m);
     if (m != null && !m.getClass().equals(this.getClass())) {
@@ -2057,6 +2261,9 @@ public class Model {
     if (log.isDebugEnabled())
       log.debug(this.getClass().getName() + "[" + this.getURI() + "]", new Exception("deny " + error));
 
+    cachekey = null;
+    cachepage = null;
+
     if (isAjax()) {
 
       JSON jo = new JSON();
@@ -2149,6 +2356,33 @@ public class Model {
    */
   public Map<Integer, Map<String, PathMapping>> pathmapping;
 
+  /**
+   * the method and params resolved by the router, null if not resolved
+   */
+  PathMapping                                   mapping;
+  Object[]                                      params;
+
+  /**
+   * the async context, not null if the handler runs in async
+   */
+  Async                                         async;
+
+  /**
+   * the time of the request started, set by the controller
+   */
+  TimeStamp                                     created;
+
+  /**
+   * the key and ttl of the cached page of the path, null if not cached
+   */
+  String                                        cachekey;
+  long                                          cachettl;
+
+  /**
+   * the page rendered to cache, cached when the handler returned with 200
+   */
+  PageCache.Page                                cachepage;
+
   /**
    * println the object to end-user
    * 
@@ -2184,9 +2418,17 @@ public class Model {
    *
    */
   protected static class PathMapping {
-    Pattern pattern;
-    Method  method;
-    Path    path;
+    private static final MethodType INVOKER = MethodType.methodType(Object.class, Model.class, Object[].class);
+    private static final Object[]   NOARGS  = new Object[0];
+
+    Pattern                         pattern;
+    Method                          method;
+    Path                            path;
+
+    /**
+     * the handle of the method, spread the params, null if can not be unreflected
+     */
+    MethodHandle                    handle;
 
     /**
      * Creates the Pathmapping
@@ -2204,9 +2446,43 @@ public class Model {
       e.pattern = pattern;
       e.path = path;
       e.method = method;
+
+      try {
+        method.setAccessible(true);
+        e.handle = MethodHandles.lookup().unreflect(method)
+            .asSpreader(Object[].class, method.getParameterTypes().length).asType(INVOKER);
+      } catch (Exception e1) {
+        log.warn("using reflection for " + method, e1);
+      }
       return e;
     }
 
+    /**
+     * invoke the method on the model.
+     *
+     * @param m
+     *          the model
+     * @param params
+     *          the params, null if none
+     * @return the result of the method
+     * @throws Exception
+     *           the exception thrown by the method
+     */
+    Object invoke(Model m, Object[] params) throws Exception {
+      if (handle == null) {
+        return method.invoke(m, params);
+      }
+
+      try {
+        Object[] args = params == null ? NOARGS : params;
+        return handle.invokeExact(m, args);
+      } catch (Exception e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new Exception(e);
+      }
+    }
+
   }
 
   /**
@@ -15,6 +15,10 @@
 package org.giiwa.framework.web;
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.Map.Entry;
@@ -43,6 +47,7 @@ import org.giiwa.framework.bean.Repo;
 import org.giiwa.framework.bean.Repo.Entity;
 import org.giiwa.framework.bean.User;
 import org.giiwa.framework.web.Model.PathMapping;
+import org.giiwa.framework.web.view.View;
 
 /**
  * module includes: a module.xml, a group of model/view/images/css/js/language,
@@ -323,12 +328,6 @@ public class Module {
    */
   private static TreeMap<Integer, Module> modules  = new TreeMap<Integer, Module>();
 
-  /**
-   * cache the model in the module, the modelMap structure: {"method|uri",
-   * "class"}
-   */
-  private static Map<String, CachedModel> modelMap = new HashMap<String, CachedModel>();
-
   /**
    * configuration
    */
@@ -338,7 +337,10 @@ public class Module {
    * Reset.
    */
   public static void reset() {
-    modelMap.clear();
+    Router.reset();
+    FileIndex.clear();
+    View.clean();
+    PageCache.clear();
   }
 
   /**
@@ -615,6 +617,39 @@ public class Module {
    * @return the File if exists, otherwise null
    */
   public File getFile(String resource, boolean inFloor, boolean inbox) {
+    if (inFloor && inbox) {
+      return index(resource).file;
+    }
+
+    return _getFile(resource, inFloor, inbox);
+  }
+
+  /**
+   * test the resource is a file (not directory) in the module box or floor,
+   * it's indexed with the file, no stat on the file system.
+   * 
+   * @param resource
+   *          the resource name
+   * @return true if it's a file
+   */
+  public boolean isFile(String resource) {
+    return index(resource).isFile;
+  }
+
+  /**
+   * the resolved file of the floor chain is indexed
+   */
+  private FileIndex.Entry index(String resource) {
+    String key = id + ":" + resource;
+    FileIndex.Entry e = FileIndex.get(key);
+    if (e == null) {
+      long gen = FileIndex.generation();
+      e = FileIndex.put(key, _getFile(resource, true, true), gen);
+    }
+    return e;
+  }
+
+  private File _getFile(String resource, boolean inFloor, boolean inbox) {
     try {
       File f = new File(viewroot + File.separator + resource);
       if (f.exists()) {
@@ -1128,7 +1163,7 @@ public class Module {
   }
 
   /**
-   * Load model from cache.
+   * Load model from the routes, only the uri which matches a method.
    *
    * @param method
    *          the method
@@ -1138,31 +1173,12 @@ public class Module {
    */
   public Model loadModelFromCache(int method, String uri) {
     try {
-      // log.debug("looking for model for <" + method + "|" + uri + ">,
-      // mapping=" + modelMap);
-
-      CachedModel c = modelMap.get(method + "|" + uri);
-
-      if (c != null) {
-        Model m = c.create(uri);
-
-        return m;
-      }
-
-      c = modelMap.get(method + "|" + uri + "/" + X.NONE);
-      if (c != null) {
-        Model m = c.create(uri);
-
-        return m;
+      Router.Match r = Router.find(method, uri);
+      if (r != null && r.mapping != null) {
+        return r.create();
       }
-
     } catch (Exception e) {
-      // e.printStackTrace();
-    }
-
-    Module e = floor();
-    if (e != null && e.getId() != this.id) {
-      return e.loadModelFromCache(method, uri);
+      // ignore
     }
 
     return null;
@@ -1177,72 +1193,53 @@ public class Module {
    *          the uri
    * @return the model
    */
-  @SuppressWarnings("unchecked")
   public Model getModel(int method, String uri) {
 
     try {
+      CachedModel c = this == home ? Router.model(uri) : _discover(uri);
+      if (c != null) {
+        return c.create(uri);
+      }
+    } catch (Throwable e) {
+      /**
+       * not a model, ignore the exception
+       */
+    }
 
-      // log.debug("looking for model for <" + method + "|" + uri + ">");
-
-      CachedModel c = null;
-      synchronized (modelMap) {
-        c = modelMap.get(method + "|" + uri);
-        // log.debug("uri=" + (method + "|" + uri));
-        if (c == null) {
-          /**
-           * looking for the model class
-           */
-          String name = (pack + "." + uri).replace("/", ".").replace("..", ".");
-
-          Class<Model> c1 = (Class<Model>) Class.forName(name, false, classLoader);
-
-          /**
-           * cache it and cache all the path
-           */
-          Map<Integer, Map<String, Model.PathMapping>> path = _loadPath(c1);
-          if (path != null && path.size() > 0) {
-            String u = uri;
-            // if (!u.endsWith("/")) {
-            // u += "/";
-            // }
-            for (int m1 : path.keySet()) {
-              Map<String, Model.PathMapping> p = path.get(m1);
-              for (String s : p.keySet()) {
-                c = CachedModel.create(c1, path, this);
-                _cache(m1 + "|" + u + "/" + s, c);
-                // log.debug("uri=" + (m1 + "|" + u + "/" + s));
-              }
-              // c = CachedModel.create(c1, path, this);
-              // _cache(m1 + "|" + u, c);
-              // log.debug("uri=" + (m1 + "|" + u));
-
-            }
-          } else {
-            c = CachedModel.create(c1, path, this);
-            _cache(method + "|" + uri, c);
+    return null;
+  }
 
-            // log.debug("uri=" + (method + "|" + uri));
-          }
-        }
-      }
+  /**
+   * discover the model class of the uri in this module and the floor modules,
+   * it's called by the Router when the uri is not in the routes.
+   *
+   * @param uri
+   *          the uri
+   * @return the CachedModel, or null if not a model
+   */
+  @SuppressWarnings("unchecked")
+  CachedModel _discover(String uri) {
 
-      if (c != null) {
-        Model m = c.create(uri);
+    try {
+      /**
+       * looking for the model class
+       */
+      String name = (pack + "." + uri).replace("/", ".").replace("..", ".");
 
-        return m;
+      Class<?> c1 = Class.forName(name, false, classLoader);
+      if (Model.class.isAssignableFrom(c1)) {
+        return CachedModel.create((Class<? extends Model>) c1, _loadPath((Class<? extends Model>) c1), this);
       }
-      // System.out.println("loading [" + name + "], c=" + c);
 
     } catch (Throwable e) {
       /**
        * not found, or is not a model, ignore the exception
        */
-
     }
 
     Module e = floor();
     if (e != null && e.getId() != this.id) {
-      return e.getModel(method, uri);
+      return e._discover(uri);
     }
 
     return null;
@@ -1272,18 +1269,6 @@ public class Module {
     return null;
   }
 
-  private void _cache(String uri, CachedModel c) {
-    CachedModel c1 = modelMap.get(uri);
-    if (c1 != null) {
-      if (c1.module.getId() > c.module.getId()) {
-        // the cached uri is bigger module's, forget current
-        return;
-      }
-    }
-
-    modelMap.put(uri, c);
-  }
-
   private Map<Integer, Map<String, Model.PathMapping>> _loadPath(Class<? extends Model> c) {
     Method[] list = c.getMethods();
     if (list != null && list.length > 0) {
@@ -1740,6 +1725,7 @@ public class Module {
          */
         m.path = new File(Model.HOME + "/modules/" + m.name).getCanonicalPath();
         m.viewroot = new File(m.path + File.separator + "view").getCanonicalPath();
+        FileIndex.watch(m.viewroot);
 
         /**
          * loading the models
@@ -1997,10 +1983,22 @@ public class Module {
   }
 
   static class CachedModel {
+    private static final MethodType              CONSTRUCTOR = MethodType.methodType(Model.class);
+
     Class<? extends Model>                       model;
     Map<Integer, Map<String, Model.PathMapping>> pathmapping;
     Module                                       module;
 
+    /**
+     * the handle of the constructor, null if can not be looked up
+     */
+    MethodHandle                                 constructor;
+
+    /**
+     * the uri of the model class, e.g. "admin/user"
+     */
+    String                                       prefix;
+
     /*
      * (non-Javadoc)
      * 
@@ -2027,6 +2025,15 @@ public class Module {
       m.model = model;
       m.pathmapping = pathmapping;
       m.module = module;
+      m.prefix = model.getName().substring(module.pack.length() + 1).replace('.', '/');
+
+      try {
+        Constructor<? extends Model> c = model.getDeclaredConstructor();
+        c.setAccessible(true);
+        m.constructor = MethodHandles.lookup().unreflectConstructor(c).asType(CONSTRUCTOR);
+      } catch (Exception e) {
+        log.warn("using reflection for " + model, e);
+      }
       return m;
     }
 
@@ -2040,7 +2047,19 @@ public class Module {
      *           the exception
      */
     public Model create(String uri) throws Exception {
-      Model m = model.newInstance();
+      Model m;
+      if (constructor == null) {
+        m = model.newInstance();
+      } else {
+        try {
+          m = (Model) constructor.invokeExact();
+        } catch (Exception e) {
+          throw e;
+        } catch (Throwable e) {
+          throw new Exception(e);
+        }
+      }
+
       m.module = module;
       m.pathmapping = pathmapping;
       if (!X.isEmpty(uri)) {
@@ -2050,12 +2069,17 @@ public class Module {
     }
 
     private String getPath(String uri) {
-      String name = model.getName().substring(module.pack.length() + 1).replaceAll("\\.", "/");
-      String path = uri.length() > name.length() ? uri.replaceAll(name, "") : X.EMPTY;
-      while (path.startsWith("/")) {
-        path = path.substring(1);
+      if (uri.length() <= prefix.length()) {
+        return X.EMPTY;
+      }
+
+      int i = uri.indexOf(prefix);
+      String path = i < 0 ? uri : uri.substring(0, i) + uri.substring(i + prefix.length());
+      int k = 0;
+      while (k < path.length() && path.charAt(k) == '/') {
+        k++;
       }
-      return path;
+      return path.substring(k);
     }
 
   }
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.giiwa.core.bean.X;
+import org.giiwa.core.conf.Global;
+import org.giiwa.framework.web.view.View;
+
+/**
+ * The {@code PageCache} Class is the cache of the rendered pages, it's used
+ * by {@code @Path(cache=...)} and {@code Model.show(view, key, ttl)}. <br>
+ * the page is cached in heap with the ETag, and dropped when expired, the
+ * template changed, or any global setting changed; the least used page is
+ * dropped when the cache is full.
+ *
+ * @author joe
+ *
+ */
+final class PageCache {
+
+  static Log                             log      = LogFactory.getLog(PageCache.class);
+
+  /** the max size of the page cached */
+  static final int                       MAXPAGE  = 1024 * 1024;
+
+  /** the max size of all the pages in heap */
+  static final long                      MAXCACHE = 16 * 1024 * 1024;
+
+  /** the interval of checking the template changed */
+  static final long                      CHECK    = 1000;
+
+  private static long                    cached   = 0;
+
+  private static final Map<String, Page> pages    = new LinkedHashMap<String, Page>(16, 0.75f, true);
+
+  /**
+   * send the cached page to the model.
+   *
+   * @param key
+   *          the key
+   * @param m
+   *          the model
+   * @return true if sent, false if not cached
+   * @throws IOException
+   *           the exception
+   */
+  static boolean send(String key, Model m) throws IOException {
+    Page p;
+    synchronized (pages) {
+      p = pages.get(key);
+    }
+
+    if (p == null) {
+      return false;
+    }
+
+    long now = System.currentTimeMillis();
+    if (p.expired < now || !X.isSame(p.version, Global.getVersion())
+        || (now - p.checked >= CHECK && !p.fresh(now))) {
+      remove(key);
+      return false;
+    }
+
+    p.send(m);
+    return true;
+  }
+
+  /**
+   * render the template and send it to the model, the page is kept in the
+   * model, and cached by {@link #commit(Model)} when the handler returned
+   * with 200.
+   *
+   * @param key
+   *          the key
+   * @param ttl
+   *          the time to live in milliseconds
+   * @param file
+   *          the template file
+   * @param m
+   *          the model
+   * @param viewname
+   *          the view name
+   * @throws Exception
+   *           the exception
+   */
+  static void merge(String key, long ttl, File file, Model m, String viewname) throws Exception {
+    String version = Global.getVersion();
+
+    HttpServletResponse resp = m.resp;
+    Capture c = new Capture(resp);
+    m.resp = c;
+    try {
+      View.merge(file, m, viewname);
+    } finally {
+      m.resp = resp;
+    }
+
+    byte[] data = c.toByteArray();
+    if (c.status != HttpServletResponse.SC_OK || m.status != HttpServletResponse.SC_OK || data.length > MAXPAGE) {
+      // not cached, send as is
+      if (data.length > 0 && !resp.isCommitted()) {
+        resp.getOutputStream().write(data);
+      }
+      return;
+    }
+
+    Page p = new Page();
+    p.data = data;
+    p.type = c.getContentType();
+    p.file = file;
+    p.last = file.lastModified();
+    p.version = version;
+    p.checked = System.currentTimeMillis();
+    p.expired = p.checked + ttl;
+
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    p.etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(data.length) + "\"";
+    p.key = key;
+
+    m.cachepage = p;
+    p.send(m);
+  }
+
+  /**
+   * cache the page rendered by the model, only if the handler did not change
+   * the status, e.g. error(), notfound() or deny().
+   *
+   * @param m
+   *          the model
+   */
+  static void commit(Model m) {
+    Page p = m.cachepage;
+    m.cachepage = null;
+
+    if (p == null || m.status != HttpServletResponse.SC_OK) {
+      return;
+    }
+
+    synchronized (pages) {
+      Page p1 = pages.put(p.key, p);
+      if (p1 != null) {
+        cached -= p1.data.length;
+      }
+      cached += p.data.length;
+
+      while (cached > MAXCACHE && pages.size() > 1) {
+        String k1 = pages.keySet().iterator().next();
+        cached -= pages.remove(k1).data.length;
+      }
+    }
+
+    if (log.isDebugEnabled())
+      log.debug("page cached, key=" + p.key + ", size=" + p.data.length);
+  }
+
+  /**
+   * clear all.
+   */
+  static void clear() {
+    synchronized (pages) {
+      pages.clear();
+      cached = 0;
+    }
+  }
+
+  private static void remove(String key) {
+    synchronized (pages) {
+      Page p = pages.remove(key);
+      if (p != null) {
+        cached -= p.data.length;
+      }
+    }
+  }
+
+  /**
+   * the cached page
+   */
+  static class Page {
+    String        key;
+    byte[]        data;
+    String        type;
+    String        etag;
+    String        version;
+    File          file;
+    long          last;
+    long          expired;
+    volatile long checked;
+
+    boolean fresh(long now) {
+      if (file.lastModified() != last) {
+        return false;
+      }
+      checked = now;
+      return true;
+    }
+
+    void send(Model m) throws IOException {
+      m.setHeader("ETag", etag);
+
+      String s = m.getHeader("If-None-Match");
+      if (s != null && (X.isSame("*", s) || s.contains(etag))) {
+        m.resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return;
+      }
+
+      if (type != null) {
+        m.resp.setContentType(type);
+      }
+      m.resp.setContentLength(data.length);
+      m.resp.getOutputStream().write(data);
+    }
+  }
+
+  /**
+   * the response which captures the output of the template, the status is
+   * remembered, only the page of 200 is cached
+   */
+  private static class Capture extends HttpServletResponseWrapper {
+
+    private final ByteArrayOutputStream buf    = new ByteArrayOutputStream();
+    private ServletOutputStream         out;
+    private PrintWriter                 writer;
+    int                                 status = HttpServletResponse.SC_OK;
+
+    Capture(HttpServletResponse resp) {
+      super(resp);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      if (out == null) {
+        out = new ServletOutputStream() {
+
+          @Override
+          public void write(int b) {
+            buf.write(b);
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+            buf.write(b, off, len);
+          }
+
+        };
+      }
+      return out;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        String charset = getCharacterEncoding();
+        writer = new PrintWriter(new OutputStreamWriter(buf, X.isEmpty(charset) ? "UTF-8" : charset));
+      }
+      return writer;
+    }
+
+    byte[] toByteArray() {
+      if (writer != null) {
+        writer.flush();
+      }
+      return buf.toByteArray();
+    }
+
+    @Override
+    public void setStatus(int sc) {
+      status = sc;
+      super.setStatus(sc);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      status = sc;
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      status = sc;
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      status = HttpServletResponse.SC_MOVED_TEMPORARILY;
+      super.sendRedirect(location);
+    }
+
+    /**
+     * the length is set when sent
+     */
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      if (!"Content-Length".equalsIgnoreCase(name)) {
+        super.setHeader(name, value);
+      }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      if (!"Content-Length".equalsIgnoreCase(name)) {
+        super.addHeader(name, value);
+      }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public void flushBuffer() {
+      if (writer != null) {
+        writer.flush();
+      }
+    }
+
+    @Override
+    public boolean isCommitted() {
+      return false;
+    }
+
+    @Override
+    public void reset() {
+      resetBuffer();
+      super.reset();
+    }
+
+    @Override
+    public void resetBuffer() {
+      if (writer != null) {
+        writer.flush();
+      }
+      buf.reset();
+    }
+
+  }
+
+}
@@ -68,9 +68,9 @@ public class PageLink implements Comparable<PageLink> {
     if (url != null) {
       StringBuilder sb = new StringBuilder("<a ").append("id='page_");
 
-      if ("<".equals(label)) {
+      if ("<".equals(label) || "&lt;".equals(label)) {
         sb.append("prev");
-      } else if (">".equals(label)) {
+      } else if (">".equals(label) || "&gt;".equals(label)) {
         sb.append("next");
       } else {
         sb.append(label);
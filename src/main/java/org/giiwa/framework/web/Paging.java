@@ -16,6 +16,9 @@ package org.giiwa.framework.web;
 
 import java.util.*;
 
+import org.giiwa.core.bean.Beans;
+import org.giiwa.core.bean.X;
+
 // TODO: Auto-generated Javadoc
 /**
  * 
@@ -212,6 +215,34 @@ public class Paging {
     return list;
   }
 
+  /**
+   * create the prev/next links by the cursor tokens of the Beans that loaded
+   * by Helper.seek(...).
+   * 
+   * @param url
+   *          the url
+   * @param bs
+   *          the Beans
+   * @return the array list, empty if no prev and next
+   */
+  public static ArrayList<PageLink> seek(QueryString url, Beans<?> bs) {
+    ArrayList<PageLink> list = new ArrayList<PageLink>();
+    if (bs == null) {
+      return list;
+    }
+
+    url = url.copy().remove("s");
+
+    if (!X.isEmpty(bs.getPrev())) {
+      list.add(new PageLink(-2, "&lt;", url.set("cursor", bs.getPrev()).toString()));
+    }
+    if (!X.isEmpty(bs.getNext())) {
+      list.add(new PageLink(-1, "&gt;", url.set("cursor", bs.getNext()).toString()));
+    }
+
+    return list;
+  }
+
   /**
    * Creates the.
    * 
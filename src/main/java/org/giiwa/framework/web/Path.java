@@ -34,6 +34,9 @@ import org.giiwa.core.bean.X;
  * login=false (no required login)
  * access=X.NONE (not required access key name)
  * accesslog=true (record the accesslog if the run level is debug)
+ * async=false (run in the task group "async" and release the request thread)
+ * cache=0 (cache the rendered page in milliseconds, GET only)
+ * vary=X.NONE (the params the cached page varies by, "role" for the login user)
  * </pre>
  * 
  * @author joe
@@ -85,4 +88,41 @@ public @interface Path {
    */
   boolean accesslog() default true;
 
+  /**
+   * run the method in the task group "async", the request thread is released,
+   * default is false. <br>
+   * it requires the container and the filter support the servlet async,
+   * otherwise run in the request thread.
+   *
+   * @return boolean
+   */
+  boolean async() default false;
+
+  /**
+   * the timeout of the async method in milliseconds, 0 means no timeout (e.g.
+   * the download), default is -1, the "web.async.timeout".
+   *
+   * @return long
+   */
+  long timeout() default -1;
+
+  /**
+   * cache the rendered page in milliseconds, default is 0 (not cached). <br>
+   * only for GET, the page is cached by the uri, the locale and the params in
+   * "vary", the method is not invoked when the page is cached.
+   *
+   * @return long
+   */
+  long cache() default 0;
+
+  /**
+   * the names of the params which the cached page varies by, separated by "|",
+   * default is "none". <br>
+   * the "role" means the roles of the login user, the page is not cached for
+   * the login user if no "role" in it.
+   *
+   * @return String
+   */
+  String vary() default X.NONE;
+
 }
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.giiwa.core.bean.X;
+import org.giiwa.framework.web.Model.PathMapping;
+import org.giiwa.framework.web.Module.CachedModel;
+
+/**
+ * The {@code Router} Class is the route table of the models, it's a segment
+ * trie of the uri, each node of model has the literal and regex paths of each
+ * http method, one lookup resolves the model, the method and the params. <br>
+ * the trie is immutable, the new model is added by copy-on-write and swapped
+ * in, and it's dropped atomically when the modules are changed. <br>
+ * the model class is discovered by the uri from the modules when it's not in
+ * the trie, the uri which is not a model is remembered, so the class loader is
+ * only asked once.
+ *
+ * @author joe
+ *
+ */
+final class Router {
+
+  static Log                       log       = LogFactory.getLog(Router.class);
+
+  /** the max of the remembered uri which is not a model */
+  private static final int         MAXMISSES = 10000;
+
+  private static final Pattern     REGEX     = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+  private static final Node        EMPTY     = new Node(Collections.<String, Node> emptyMap(), null, null, null);
+
+  private static volatile Node     root      = EMPTY;
+
+  private static final Set<String> misses    = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  /**
+   * the result of the lookup
+   */
+  static final class Match {
+    final CachedModel model;
+    final String      uri;
+    final String      path;
+    final PathMapping mapping;
+    final Object[]    params;
+
+    private Match(CachedModel model, String uri, String path, PathMapping mapping, Object[] params) {
+      this.model = model;
+      this.uri = uri;
+      this.path = path;
+      this.mapping = mapping;
+      this.params = params;
+    }
+
+    /**
+     * the uri is the model itself, no sub path
+     *
+     * @return boolean
+     */
+    boolean exact() {
+      return path.length() == 0;
+    }
+
+    /**
+     * create the model with the resolved path, method and params.
+     *
+     * @return the Model
+     * @throws Exception
+     *           the exception
+     */
+    Model create() throws Exception {
+      Model m = model.create(null);
+      m.path = path;
+      m.mapping = mapping;
+      m.params = params;
+      return m;
+    }
+  }
+
+  /**
+   * the paths of the model, split to literal and regex for each http method
+   */
+  private static final class Routes {
+    final Map<Integer, Map<String, PathMapping>> literals = new HashMap<Integer, Map<String, PathMapping>>();
+    final Map<Integer, PathMapping[]>            regexes  = new HashMap<Integer, PathMapping[]>();
+
+    Routes(Map<Integer, Map<String, PathMapping>> pathmapping) {
+      if (pathmapping == null) {
+        return;
+      }
+
+      for (int method : pathmapping.keySet()) {
+        Map<String, PathMapping> l1 = new HashMap<String, PathMapping>();
+        List<PathMapping> l2 = new ArrayList<PathMapping>();
+
+        Map<String, PathMapping> m = pathmapping.get(method);
+        for (String s : m.keySet()) {
+          if (X.isEmpty(s)) {
+            continue;
+          }
+          if (REGEX.matcher(s).find()) {
+            l2.add(m.get(s));
+          } else {
+            l1.put(s, m.get(s));
+          }
+        }
+        literals.put(method, l1);
+        regexes.put(method, l2.toArray(new PathMapping[l2.size()]));
+      }
+    }
+
+    Match match(CachedModel c, String uri, String path, int method) {
+      String s = path.length() == 0 ? X.NONE : path;
+
+      Map<String, PathMapping> l1 = literals.get(method);
+      if (l1 != null) {
+        PathMapping oo = l1.get(s);
+        if (oo != null) {
+          return new Match(c, uri, path, oo, null);
+        }
+      }
+
+      PathMapping[] l2 = regexes.get(method);
+      if (l2 != null) {
+        for (PathMapping oo : l2) {
+          Matcher m1 = oo.pattern.matcher(s);
+          if (m1.matches()) {
+            Object[] params = new Object[m1.groupCount()];
+            for (int i = 0; i < params.length; i++) {
+              params[i] = m1.group(i + 1);
+            }
+            return new Match(c, uri, path, oo, params);
+          }
+        }
+      }
+
+      return new Match(c, uri, path, null, null);
+    }
+  }
+
+  /**
+   * the node of the trie, immutable
+   */
+  private static final class Node {
+    final Map<String, Node> children;
+    final CachedModel       model;
+    final String            uri;
+    final Routes            routes;
+
+    Node(Map<String, Node> children, CachedModel model, String uri, Routes routes) {
+      this.children = children;
+      this.model = model;
+      this.uri = uri;
+      this.routes = routes;
+    }
+  }
+
+  /**
+   * find the longest model of the uri, and resolve the method of the sub path.
+   *
+   * @param method
+   *          the http method
+   * @param uri
+   *          the uri
+   * @return the Match, or null if no model
+   */
+  static Match find(int method, String uri) {
+    String[] segs = split(uri);
+
+    Node n = root;
+    Node best = null;
+    int depth = 0;
+    for (int i = 0; i < segs.length; i++) {
+      n = n.children.get(segs[i]);
+      if (n == null) {
+        break;
+      }
+      if (n.model != null) {
+        best = n;
+        depth = i + 1;
+      }
+    }
+
+    /**
+     * the longer uri may be a model not discovered yet
+     */
+    int max = 0;
+    while (max < segs.length && isName(segs[max])) {
+      max++;
+    }
+    for (int k = max; k > depth; k--) {
+      String u = join(segs, 0, k, true);
+      Node n1 = discover(u);
+      if (n1 != null) {
+        best = n1;
+        depth = k;
+        break;
+      }
+    }
+
+    if (best == null) {
+      return null;
+    }
+
+    return best.routes.match(best.model, best.uri, join(segs, depth, segs.length, false), method);
+  }
+
+  /**
+   * get the model of the uri.
+   *
+   * @param uri
+   *          the uri
+   * @return the CachedModel, or null if not a model
+   */
+  static CachedModel model(String uri) {
+    String[] segs = split(uri);
+
+    Node n = root;
+    for (int i = 0; i < segs.length && n != null; i++) {
+      n = n.children.get(segs[i]);
+    }
+    if (n != null && n.model != null) {
+      return n.model;
+    }
+
+    for (String s : segs) {
+      if (!isName(s)) {
+        return null;
+      }
+    }
+
+    n = discover(join(segs, 0, segs.length, true));
+    return n == null ? null : n.model;
+  }
+
+  /**
+   * drop all the routes, it's called when the modules are changed
+   */
+  static synchronized void reset() {
+    root = EMPTY;
+    misses.clear();
+  }
+
+  private static Node discover(String uri) {
+    if (misses.contains(uri) || Module.home == null) {
+      return null;
+    }
+
+    CachedModel c = Module.home._discover(uri);
+    if (c == null) {
+      if (misses.size() > MAXMISSES) {
+        misses.clear();
+      }
+      misses.add(uri);
+      return null;
+    }
+
+    return register(uri, c);
+  }
+
+  private static synchronized Node register(String uri, CachedModel c) {
+    String[] segs = split(uri);
+
+    // check again, may registered by other thread
+    Node n = root;
+    for (int i = 0; i < segs.length && n != null; i++) {
+      n = n.children.get(segs[i]);
+    }
+    if (n != null && n.model != null) {
+      return n;
+    }
+
+    Node n1 = new Node(EMPTY.children, c, uri, new Routes(c.pathmapping));
+    root = insert(root, segs, 0, n1);
+
+    if (log.isDebugEnabled())
+      log.debug("route added, uri=" + uri + ", model=" + c);
+
+    return n1;
+  }
+
+  private static Node insert(Node n, String[] segs, int i, Node leaf) {
+    if (i == segs.length) {
+      return new Node(n.children, leaf.model, leaf.uri, leaf.routes);
+    }
+
+    Node child = n.children.get(segs[i]);
+    Map<String, Node> m = new HashMap<String, Node>(n.children);
+    m.put(segs[i], insert(child == null ? EMPTY : child, segs, i + 1, leaf));
+    return new Node(Collections.unmodifiableMap(m), n.model, n.uri, n.routes);
+  }
+
+  private static String[] split(String uri) {
+    List<String> l1 = new ArrayList<String>();
+    int s = 0;
+    int len = uri.length();
+    for (int i = 0; i <= len; i++) {
+      if (i == len || uri.charAt(i) == '/') {
+        if (i > s) {
+          l1.add(uri.substring(s, i));
+        }
+        s = i + 1;
+      }
+    }
+    return l1.toArray(new String[l1.size()]);
+  }
+
+  private static String join(String[] segs, int from, int to, boolean lead) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = from; i < to; i++) {
+      if (lead || i > from) {
+        sb.append('/');
+      }
+      sb.append(segs[i]);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * the segment can be a part of class name
+   */
+  private static boolean isName(String s) {
+    if (!Character.isJavaIdentifierStart(s.charAt(0))) {
+      return false;
+    }
+    for (int i = 1; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c != '.' && !Character.isJavaIdentifierPart(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
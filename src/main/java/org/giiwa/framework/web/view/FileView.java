@@ -3,7 +3,7 @@
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
- * 
+ *
  *      http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing, software
@@ -14,98 +14,441 @@
 */
 package org.giiwa.framework.web.view;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
-import org.giiwa.core.base.IOUtil;
+import org.giiwa.core.bean.UID;
 import org.giiwa.core.bean.X;
-import org.giiwa.framework.web.Language;
 import org.giiwa.framework.web.Model;
 
+/**
+ * The {@code FileView} Class serve the static file, the headers (ETag,
+ * Last-Modified, Content-Type) are computed once for each file and cached,
+ * the small file is cached in heap, and the compressible one has a gzip
+ * variant in heap. <br>
+ * the pre-compressed file "[file].br" or "[file].gz" is served if exists and
+ * the client accepts, each content-coding has its own ETag. <br>
+ * supports If-None-Match, If-Modified-Since, If-Range and the multiple ranges,
+ * the ranges are of the identity content.
+ *
+ * @author joe
+ *
+ */
 public class FileView extends View {
 
+  /** the max size of the file cached in heap */
+  static final int                        MAXFILE   = 64 * 1024;
+
+  /** the max size of all the files in heap */
+  static final long                       MAXCACHE  = 16 * 1024 * 1024;
+
+  /** the interval of checking the file changed */
+  static final long                       CHECK     = 1000;
+
+  /** the max number of the ranges, the whole file is sent if more */
+  static final int                        MAXRANGES = 16;
+
+  private static long                     cached    = 0;
+
+  private static final Map<String, Asset> assets    = new LinkedHashMap<String, Asset>(16, 0.75f, true);
+
   /**
    * copy the file to front-end, and {giiwa}/html/ too
    */
   @Override
   public boolean parse(File file, Model m, String viewname) throws IOException {
 
-    InputStream in = null;
-    try {
-      in = new FileInputStream(file);
-      /**
-       * copy the local html first
-       */
-      File f1 = new File(Model.GIIWA_HOME + "/html/" + viewname);
-      if (!f1.exists()) {
-        f1.getParentFile().mkdirs();
-        FileOutputStream out1 = new FileOutputStream(f1);
-        IOUtil.copy(in, out1);
+    Asset a = asset(file, viewname);
+
+    m.setContentType(a.type);
+    m.setHeader("Last-Modified", a.modified);
+    m.setHeader("Accept-Ranges", "bytes");
+    if (a.gzip != null || a.gz != null || a.br != null) {
+      m.setHeader("Vary", "Accept-Encoding");
+    }
+
+    /**
+     * the content-coding of the whole content, the conditions are evaluated
+     * before the range (RFC 7232 section 6)
+     */
+    String accept = m.getHeader("Accept-Encoding");
+    String coding = null;
+    if (a.br != null && accepts(accept, "br")) {
+      coding = "br";
+    } else if ((a.gzip != null || a.gz != null) && accepts(accept, "gzip")) {
+      coding = "gzip";
+    }
+
+    if (notModified(a.etag(coding), a, m)) {
+      m.setHeader("ETag", a.etag(coding));
+      m.resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return true;
+    }
+
+    String range = m.getHeader("Range");
+    if (!X.isEmpty(range)) {
+      String ifrange = m.getHeader("If-Range");
+      if (!X.isEmpty(ifrange) && !X.isSame(ifrange, a.etag) && !X.isSame(ifrange, a.modified)) {
+        // changed, send the whole
+        range = null;
       }
+    }
+
+    List<long[]> ranges = null;
+    if (!X.isEmpty(range)) {
+      ranges = ranges(range, a.length);
+      if (ranges != null && ranges.isEmpty()) {
+        // too many ranges, send the whole
+        range = null;
+      }
+    }
+
+    if (X.isEmpty(range)) {
+      m.setHeader("ETag", a.etag(coding));
+      if ("br".equals(coding)) {
+        m.setHeader("Content-Encoding", "br");
+        send(a.br, m);
+      } else if ("gzip".equals(coding) && a.gzip != null) {
+        m.setHeader("Content-Encoding", "gzip");
+        m.setHeader("Content-Length", Integer.toString(a.gzip.length));
+        m.getOutputStream().write(a.gzip);
+      } else if ("gzip".equals(coding)) {
+        m.setHeader("Content-Encoding", "gzip");
+        send(a.gz, m);
+      } else {
+        send(a, m, 0, a.length);
+      }
+      return true;
+    }
+
+    m.setHeader("ETag", a.etag);
 
-      in = new FileInputStream(file);
-      m.setContentType(Model.getMimeType(file.getName()));
+    if (ranges == null) {
+      m.setHeader("Content-Range", "bytes */" + a.length);
+      m.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+      return true;
+    }
 
-      String date = m.getHeader("If-Modified-Since");
+    m.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    if (ranges.size() == 1) {
+      long[] r = ranges.get(0);
+      m.setHeader("Content-Range", "bytes " + r[0] + "-" + (r[1] - 1) + "/" + a.length);
+      send(a, m, r[0], r[1]);
+    } else {
+      String boundary = UID.random(20);
+      m.setContentType("multipart/byteranges; boundary=" + boundary);
 
-      String range = m.getHeader("Range");
-      String date2 = Language.getLanguage().format(file.lastModified(), "yyyy-MM-dd HH:mm:ss z");
-      if (X.isEmpty(range) && date != null && date.equals(date2)) {
-        m.resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-        return true;
+      OutputStream out = m.getOutputStream();
+      for (long[] r : ranges) {
+        out.write(("\r\n--" + boundary + "\r\nContent-Type: " + a.type + "\r\nContent-Range: bytes " + r[0] + "-"
+            + (r[1] - 1) + "/" + a.length + "\r\n\r\n").getBytes());
+        write(a, out, r[0], r[1]);
       }
+      out.write(("\r\n--" + boundary + "--\r\n").getBytes());
+    }
+
+    return true;
+  }
+
+  private boolean notModified(String etag, Asset a, Model m) {
+    String s = m.getHeader("If-None-Match");
+    if (s != null) {
+      return X.isSame("*", s) || s.contains(etag);
+    }
+    return X.isSame(a.modified, m.getHeader("If-Modified-Since"));
+  }
 
-      long total = f1.length();
-      long start = 0;
-      long end = total;
-      if (!X.isEmpty(range)) {
-        String[] ss = X.split(range, "[=-]");
-        if (ss.length > 1) {
-          start = X.toLong(ss[1]);
+  /**
+   * test the content-coding is accepted by the "Accept-Encoding", the one with
+   * "q=0" is not accepted.
+   */
+  private static boolean accepts(String accept, String coding) {
+    if (X.isEmpty(accept)) {
+      return false;
+    }
+
+    float any = 0;
+    for (String s : accept.split(",")) {
+      String[] ss = s.split(";");
+      String name = ss[0].trim();
+
+      float q = 1;
+      for (int i = 1; i < ss.length; i++) {
+        String p = ss[i].trim();
+        if (p.startsWith("q=") || p.startsWith("Q=")) {
+          q = X.toFloat(p.substring(2).trim(), 0);
         }
+      }
 
-        if (ss.length > 2) {
-          end = Math.min(total, X.toLong(ss[2]));
+      if (name.equalsIgnoreCase(coding)) {
+        return q > 0;
+      } else if ("*".equals(name)) {
+        any = q;
+      }
+    }
+    return any > 0;
+  }
 
-          if (end < start) {
-            end = start + 16 * 1024;
-          }
+  private void send(Asset a, Model m, long start, long end) throws IOException {
+    m.setHeader("Content-Length", Long.toString(end - start));
+    write(a, m.getOutputStream(), start, end);
+  }
+
+  private void write(Asset a, OutputStream out, long start, long end) throws IOException {
+    if (a.data != null) {
+      out.write(a.data, (int) start, (int) (end - start));
+    } else {
+      transfer(a.file, out, start, end);
+    }
+  }
+
+  private void send(File f, Model m) throws IOException {
+    m.setHeader("Content-Length", Long.toString(f.length()));
+    transfer(f, m.getOutputStream(), 0, f.length());
+  }
+
+  /**
+   * transfer the file to the stream by the channel, the data is copied through
+   * the buffer in java heap, as the servlet stream is not a channel.
+   */
+  private void transfer(File f, OutputStream out, long start, long end) throws IOException {
+    FileInputStream in = new FileInputStream(f);
+    try {
+      FileChannel ch = in.getChannel();
+      WritableByteChannel w = Channels.newChannel(out);
+      while (start < end) {
+        long n = ch.transferTo(start, end - start, w);
+        if (n <= 0) {
+          break;
         }
+        start += n;
       }
+    } finally {
+      in.close();
+    }
+  }
 
-      if (end > total) {
+  /**
+   * parse the ranges, the end is exclusive, the overlapped or adjacent ranges
+   * are merged and sorted.
+   *
+   * @param range
+   *          the "Range" header
+   * @param total
+   *          the length of the file
+   * @return the list of [start, end], null if not satisfiable, or empty if
+   *         more than MAXRANGES (abusive, send the whole)
+   */
+  static List<long[]> ranges(String range, long total) {
+    if (!range.startsWith("bytes=")) {
+      return null;
+    }
+
+    String[] ss = range.substring(6).split(",");
+    if (ss.length > MAXRANGES) {
+      return new ArrayList<long[]>();
+    }
+
+    List<long[]> l1 = new ArrayList<long[]>();
+    for (String s : ss) {
+      s = s.trim();
+      int i = s.indexOf("-");
+      if (i < 0) {
+        continue;
+      }
+
+      long start, end;
+      if (i == 0) {
+        // the suffix, last n bytes
+        long n = X.toLong(s.substring(1), 0);
+        start = Math.max(0, total - n);
         end = total;
+      } else {
+        start = X.toLong(s.substring(0, i), -1);
+        end = i == s.length() - 1 ? total : Math.min(total, X.toLong(s.substring(i + 1), -1) + 1);
       }
 
-      long length = end - start;
+      if (start >= 0 && start < end) {
+        l1.add(new long[] { start, end });
+      }
+    }
+
+    if (l1.isEmpty()) {
+      return null;
+    }
 
-      m.setHeader("Content-Length", Long.toString(length));
-      m.setHeader("Last-Modified", date2);
-      m.setHeader("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + total);
-      if (start == 0) {
-        m.setHeader("Accept-Ranges", "bytes");
+    Collections.sort(l1, new Comparator<long[]>() {
+
+      @Override
+      public int compare(long[] o1, long[] o2) {
+        return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
       }
-      if (end < total) {
-        m.setStatus(206);
+
+    });
+
+    List<long[]> l2 = new ArrayList<long[]>();
+    long[] last = null;
+    for (long[] r : l1) {
+      if (last != null && r[0] <= last[1]) {
+        last[1] = Math.max(last[1], r[1]);
+      } else {
+        last = r;
+        l2.add(r);
       }
+    }
+    return l2;
+  }
 
-      IOUtil.copy(new FileInputStream(f1), m.getOutputStream(), start, end, true);
+  private static Asset asset(File file, String viewname) throws IOException {
+    String key = file.getPath();
+    long now = System.currentTimeMillis();
 
-      return true;
-    } finally {
-      if (in != null) {
-        try {
-          in.close();
-        } catch (IOException e) {
-          log.error(e);
+    synchronized (assets) {
+      Asset a = assets.get(key);
+      if (a != null) {
+        if (now - a.checked < CHECK) {
+          return a;
+        }
+        if (a.lastModified == file.lastModified() && a.length == file.length()) {
+          a.checked = now;
+          return a;
         }
+        assets.remove(key);
+        cached -= a.size();
+      }
+    }
+
+    Asset a = Asset.create(file, viewname);
+    a.checked = now;
+
+    synchronized (assets) {
+      Asset a1 = assets.put(key, a);
+      if (a1 != null) {
+        cached -= a1.size();
       }
+      cached += a.size();
+
+      while (cached > MAXCACHE && assets.size() > 1) {
+        String k1 = assets.keySet().iterator().next();
+        cached -= assets.remove(k1).size();
+      }
+    }
+    return a;
+  }
+
+  /**
+   * the cached file and headers
+   */
+  private static class Asset {
+    File   file;
+    long   length;
+    long   lastModified;
+    long   checked;
+    String type;
+    String etag;
+    String modified;
+
+    /** the content, null if too big */
+    byte[] data;
+
+    /** the gzip content in heap, null if not compressible or too big */
+    byte[] gzip;
+
+    /** the pre-compressed files */
+    File   gz;
+    File   br;
+
+    long size() {
+      return (data == null ? 0 : data.length) + (gzip == null ? 0 : gzip.length);
+    }
+
+    /**
+     * the ETag of the content-coding, null for the identity.
+     */
+    String etag(String coding) {
+      if (coding == null) {
+        return etag;
+      }
+      return etag.substring(0, etag.length() - 1) + "-" + ("gzip".equals(coding) ? "gz" : coding) + "\"";
+    }
+
+    static Asset create(File file, String viewname) throws IOException {
+      Asset a = new Asset();
+      a.file = file;
+      a.length = file.length();
+      a.lastModified = file.lastModified();
+
+      if (a.length <= MAXFILE) {
+        // the length of the data read, the file may be changed
+        a.data = Files.readAllBytes(file.toPath());
+        a.length = a.data.length;
+      }
+
+      a.type = Model.getMimeType(file.getName());
+      if (a.type == null) {
+        a.type = "application/octet-stream";
+      }
+      a.etag = "\"" + Long.toHexString(a.length) + "-" + Long.toHexString(a.lastModified) + "\"";
+
+      SimpleDateFormat f = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+      f.setTimeZone(TimeZone.getTimeZone("GMT"));
+      a.modified = f.format(a.lastModified);
+
+      a.gz = variant(file, ".gz");
+      a.br = variant(file, ".br");
+
+      if (a.data != null) {
+        if (a.gz == null && a.length > 1024 && compressible(a.type)) {
+          ByteArrayOutputStream bb = new ByteArrayOutputStream();
+          GZIPOutputStream zip = new GZIPOutputStream(bb);
+          zip.write(a.data);
+          zip.close();
+          if (bb.size() < a.length) {
+            a.gzip = bb.toByteArray();
+          }
+        }
+      }
+
+      /**
+       * copy the local html for front-end http server
+       */
+      File f1 = new File(Model.GIIWA_HOME + "/html/" + viewname);
+      if (!f1.exists() || f1.lastModified() < a.lastModified) {
+        f1.getParentFile().mkdirs();
+        Files.copy(file.toPath(), f1.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      return a;
+    }
+
+    private static File variant(File file, String suffix) {
+      File f = new File(file.getPath() + suffix);
+      return f.isFile() && f.lastModified() >= file.lastModified() ? f : null;
+    }
+
+    private static boolean compressible(String type) {
+      return type.startsWith("text/") || type.contains("javascript") || type.contains("json")
+          || type.contains("xml") || type.contains("svg");
     }
   }
 
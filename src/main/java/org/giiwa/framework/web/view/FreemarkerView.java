@@ -15,11 +15,6 @@
 package org.giiwa.framework.web.view;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.giiwa.framework.web.Model;
 
@@ -33,12 +28,19 @@ public class FreemarkerView extends View {
     // load
     try {
 
-      Template template = getTemplate(file);
+      Template template = (Template) getTemplate(file);
       if (template != null) {
 
-        Writer out = new OutputStreamWriter(m.getOutputStream());
-        template.process(m.context, out);
-        out.flush();
+        m.resp.setContentType(m.getResponseContentType());
+
+        ViewWriter out = open(file, m);
+        try {
+          template.process(m.context, out);
+        } catch (Exception e) {
+          out.abort();
+          throw e;
+        }
+        close(file, out);
 
         return true;
       }
@@ -48,36 +50,29 @@ public class FreemarkerView extends View {
     return false;
   }
 
-  Template getTemplate(File f) throws IOException {
-
-    String fullname = f.getCanonicalPath();
-    T t = cache.get(fullname);
-    if (t == null || t.last != f.lastModified()) {
-      if (cache.size() == 0) {
-        cfg.setDirectoryForTemplateLoading(new File(Model.HOME));
-      }
-
-      Template t1 = cfg.getTemplate(f.getCanonicalPath().substring(Model.HOME.length()), "UTF-8");
-      t = T.create(t1, f.lastModified());
-      cache.put(fullname, t);
-    }
-    return t == null ? null : t.template;
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.giiwa.framework.web.view.View#compile(java.io.File)
+   */
+  @Override
+  protected Object compile(File f) throws Exception {
+    return cfg.getTemplate(f.getCanonicalPath().substring(Model.HOME.length()), "UTF-8");
   }
 
-  private static class T {
-    Template template;
-    long     last;
+  private static freemarker.template.Configuration cfg = new freemarker.template.Configuration(
+      freemarker.template.Configuration.VERSION_2_3_24);
+
+  static {
+    try {
+      cfg.setDirectoryForTemplateLoading(new File(Model.HOME));
 
-    static T create(Template t, long last) {
-      T t1 = new T();
-      t1.template = t;
-      t1.last = last;
-      return t1;
+      // the template is compiled only when changed, it must not get the stale
+      // one in the cache of freemarker
+      cfg.setTemplateUpdateDelayMilliseconds(0);
+    } catch (Exception e) {
+      log.error(Model.HOME, e);
     }
   }
 
-  private static Map<String, T>                    cache = new HashMap<String, T>();
-  private static freemarker.template.Configuration cfg   = new freemarker.template.Configuration(
-      freemarker.template.Configuration.VERSION_2_3_24);
-
 }
@@ -18,8 +18,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections.ExtendedProperties;
 import org.apache.commons.logging.Log;
@@ -36,7 +36,7 @@ public class VelocityTemplateLoader extends ClasspathResourceLoader {
   /**
    * cache the file
    */
-  static Map<String, File> cache = new HashMap<String, File>();
+  static Map<String, File> cache = new ConcurrentHashMap<String, File>();
 
   /**
    * Clean.
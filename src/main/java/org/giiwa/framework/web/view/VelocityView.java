@@ -16,10 +16,7 @@ package org.giiwa.framework.web.view;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.IOException;
 import java.io.StringWriter;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Properties;
 
 import org.apache.velocity.Template;
@@ -31,17 +28,21 @@ import org.giiwa.framework.web.Model;
 public class VelocityView extends View {
 
   @Override
-  public boolean parse(File file, Model m, String viewname) throws IOException {
-    Template template = getTemplate(file);
+  public boolean parse(File file, Model m, String viewname) throws Exception {
+    Template template = (Template) getTemplate(file);
 
     // System.out.println(viewname + "=>" + template);
     if (template != null) {
       m.resp.setContentType(m.getResponseContentType());
 
-      BufferedWriter writer = new BufferedWriter(m.resp.getWriter());
-
-      template.merge(new VelocityContext(m.context), writer);
-      writer.flush();
+      ViewWriter writer = open(file, m);
+      try {
+        template.merge(new VelocityContext(m.context), writer);
+      } catch (Exception e) {
+        writer.abort();
+        throw e;
+      }
+      close(file, writer);
 
       return true;
     }
@@ -60,7 +61,7 @@ public class VelocityView extends View {
   public String parse(File file, JSON m) {
 
     try {
-      Template template = getTemplate(file);
+      Template template = (Template) getTemplate(file);
 
       if (template != null) {
 
@@ -79,64 +80,26 @@ public class VelocityView extends View {
   }
 
   /**
-   * Gets the template by viewname, the viewname is relative path
-   * 
-   * @param viewname
-   *          the relative view path name
-   * @param allowEmpty
-   *          if not presented, allow using a empty
-   * @return Template
-   * @throws IOException
+   * initialize template loader for velocity
    */
-  private Template getTemplate(File f) throws IOException {
-
-    String fullname = f.getCanonicalPath();
-    T t = cache.get(fullname);
-
-    if (t == null || t.last != f.lastModified()) {
-
-      if (cache.size() == 0) {
-        /**
-         * initialize template loader for velocity
-         */
-        Properties p = new Properties();
-        p.setProperty("input.encoding", "utf-8");
-        p.setProperty("output.encoding", "utf-8");
-        p.setProperty("log4j.logger.org.apache.velocity", "ERROR");
-        p.setProperty("directive.set.null.allowed", "true");
-        p.setProperty("file.resource.loader.class", "org.giiwa.framework.web.view.VelocityTemplateLoader");
-        Velocity.init(p);
-      }
-
-      /**
-       * get the template from the top
-       */
-      Template t1 = Velocity.getTemplate(fullname, "UTF-8");
-      t = T.create(t1, f.lastModified());
-
-      cache.put(fullname, t);
-    }
-
-    return t == null ? null : t.template;
-
-  }
-
-  private static class T {
-    Template template;
-    long     last;
-
-    static T create(Template t, long last) {
-      T t1 = new T();
-      t1.template = t;
-      t1.last = last;
-      return t1;
-    }
+  static {
+    Properties p = new Properties();
+    p.setProperty("input.encoding", "utf-8");
+    p.setProperty("output.encoding", "utf-8");
+    p.setProperty("log4j.logger.org.apache.velocity", "ERROR");
+    p.setProperty("directive.set.null.allowed", "true");
+    p.setProperty("file.resource.loader.class", "org.giiwa.framework.web.view.VelocityTemplateLoader");
+    Velocity.init(p);
   }
 
-  /**
-   * cache the template by viewname, the template will be override in child
-   * module
+  /*
+   * (non-Javadoc)
+   * 
+   * @see org.giiwa.framework.web.view.View#compile(java.io.File)
    */
-  private static Map<String, T> cache = new HashMap<String, T>();
+  @Override
+  protected Object compile(File f) throws Exception {
+    return Velocity.getTemplate(f.getCanonicalPath(), "UTF-8");
+  }
 
 }
@@ -15,16 +15,42 @@
 package org.giiwa.framework.web.view;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.giiwa.core.conf.Global;
+import org.giiwa.core.task.Task;
 import org.giiwa.framework.web.Model;
+import org.giiwa.framework.web.Module;
 
+/**
+ * The {@code View} Class is the base of the views, and the shared registry of
+ * the compiled templates, the template is compiled once and re-checked in the
+ * interval configured by "web.template.check" (milliseconds, default 2000,
+ * -1 never), all the templates of the modules are compiled in background when
+ * started.
+ *
+ * @author joe
+ *
+ */
 public abstract class View {
 
-  static Log log = LogFactory.getLog(View.class);
+  static Log                                log       = LogFactory.getLog(View.class);
+
+  /**
+   * the compiled templates, the key is the path of the file
+   */
+  private static final Map<String, Compiled> templates = new ConcurrentHashMap<String, Compiled>();
+
+  /**
+   * the learned output size of the templates in chars, the key is the path of
+   * the file
+   */
+  private static final Map<String, Integer>  hints     = new ConcurrentHashMap<String, Integer>();
 
   /**
    * parse the file with the model
@@ -41,6 +67,104 @@ public abstract class View {
    */
   protected abstract boolean parse(File file, Model m, String viewname) throws Exception;
 
+  /**
+   * compile the template file, the view which has template should override it.
+   *
+   * @param file
+   *          the file
+   * @return the compiled template, null if the view has no template
+   * @throws Exception
+   *           if occur error
+   */
+  protected Object compile(File file) throws Exception {
+    return null;
+  }
+
+  /**
+   * get the compiled template from the registry, compile it if not exists or
+   * changed.
+   *
+   * @param file
+   *          the file
+   * @return the compiled template
+   * @throws Exception
+   *           if occur error
+   */
+  protected Object getTemplate(File file) throws Exception {
+    String name = file.getPath();
+    long now = System.currentTimeMillis();
+
+    Compiled c = templates.get(name);
+    if (c != null) {
+      long check = Global.getLong("web.template.check", 2000);
+      if (check < 0 || now - c.checked < check) {
+        return c.template;
+      }
+      if (c.last == file.lastModified()) {
+        c.checked = now;
+        return c.template;
+      }
+    }
+
+    c = new Compiled();
+    c.last = file.lastModified();
+    c.checked = now;
+    c.template = compile(file);
+    if (c.template != null) {
+      templates.put(name, c);
+    }
+    return c.template;
+  }
+
+  /**
+   * open the writer of the response for the template, the response buffer is
+   * sized by the learned output size.
+   *
+   * @param file
+   *          the template file
+   * @param m
+   *          the model
+   * @return the ViewWriter
+   */
+  static ViewWriter open(File file, Model m) {
+    Integer h = hints.get(file.getPath());
+    return ViewWriter.open(m.resp, h == null ? 0 : h);
+  }
+
+  /**
+   * finish the writer, and learn the output size of the template.
+   *
+   * @param file
+   *          the template file
+   * @param w
+   *          the writer
+   * @throws IOException
+   *           if occur error
+   */
+  static void close(File file, ViewWriter w) throws IOException {
+    int n = w.finish();
+    Integer h = hints.get(file.getPath());
+    hints.put(file.getPath(), h == null ? n : (h * 3 + n) / 4);
+  }
+
+  /**
+   * clean the compiled templates.
+   */
+  public static void clean() {
+    templates.clear();
+    hints.clear();
+    VelocityTemplateLoader.clean();
+  }
+
+  /**
+   * the compiled template
+   */
+  private static class Compiled {
+    Object        template;
+    long          last;
+    volatile long checked;
+  }
+
   /**
    * init the views by config
    * 
@@ -63,6 +187,23 @@ public abstract class View {
 
     log.debug("config=" + views);
 
+    new Prewarm().schedule(0);
+  }
+
+  /**
+   * find the view of the file.
+   *
+   * @param name
+   *          the file name
+   * @return the View
+   */
+  private static View view(String name) {
+    for (String suffix : views.keySet()) {
+      if (name.endsWith(suffix)) {
+        return views.get(suffix);
+      }
+    }
+    return null;
   }
 
   /**
@@ -79,16 +220,66 @@ public abstract class View {
    */
   public static void merge(File file, Model m, String viewname) throws Exception {
 
-    String name = file.getName();
-    for (String suffix : views.keySet()) {
-      if (name.endsWith(suffix)) {
-        View v = views.get(suffix);
-        v.parse(file, m, viewname);
+    View v = view(file.getName());
+    if (v != null) {
+      v.parse(file, m, viewname);
+      return;
+    }
+
+    fileview.parse(file, m, viewname);
+  }
+
+  /**
+   * The {@code Prewarm} Class compile all the templates of the modules, the
+   * template is resolved by the module home, so the winner is compiled
+   */
+  private static class Prewarm extends Task {
+
+    @Override
+    public String getName() {
+      return "template.prewarm";
+    }
+
+    @Override
+    public void onExecute() {
+      if (Module.home == null) {
         return;
       }
+
+      int n = 0;
+      for (Module m : Module.getAll(true)) {
+        File root = new File(m.getPath(), "view");
+        n += prewarm(root, root.getPath().length());
+      }
+      log.info("prewarmed templates: " + n);
+    }
+
+    private int prewarm(File dir, int prefix) {
+      int n = 0;
+      File[] ff = dir.listFiles();
+      if (ff != null) {
+        for (File f : ff) {
+          if (f.isDirectory()) {
+            n += prewarm(f, prefix);
+          } else {
+            View v = view(f.getName());
+            File f1 = v == null ? null : Module.home.getFile(f.getPath().substring(prefix));
+            if (f1 != null) {
+              try {
+                if (v.getTemplate(f1) != null) {
+                  n++;
+                }
+              } catch (Throwable e) {
+                if (log.isDebugEnabled())
+                  log.debug("prewarm failed, file=" + f1, e);
+              }
+            }
+          }
+        }
+      }
+      return n;
     }
 
-    fileview.parse(file, m, viewname);
   }
 
   private static Map<String, View> views    = new HashMap<String, View>();
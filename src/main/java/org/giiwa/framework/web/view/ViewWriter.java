@@ -0,0 +1,328 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web.view;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.giiwa.core.bean.X;
+
+/**
+ * The {@code ViewWriter} Class is the writer of the template output, it's
+ * pooled in each thread with the char buffer and the encoder. <br>
+ * the small page is buffered and sent with Content-Length, so the keep-alive
+ * connection is not chunked; the page bigger than the buffer, or learned
+ * bigger by the size hint, is streamed to the response, and flushed once when
+ * the "&lt;/head&gt;" is written, so the browser can load the resources early.
+ *
+ * @author joe
+ *
+ */
+final class ViewWriter extends Writer {
+
+  /** the chars buffered for Content-Length */
+  static final int                             LIMIT     = 16 * 1024;
+
+  /** the max buffer size of the response */
+  static final int                             MAXBUFFER = 64 * 1024;
+
+  private static final Charset                 UTF8      = Charset.forName("UTF-8");
+
+  private static final String                  HEAD      = "</head>";
+
+  private static final ThreadLocal<ViewWriter> pool      = new ThreadLocal<ViewWriter>();
+
+  private final char[]                         buf       = new char[LIMIT];
+  private final ByteBuffer                     bytes     = ByteBuffer.allocate(8 * 1024);
+  private final ByteArrayOutputStream          staged    = new ByteArrayOutputStream(LIMIT);
+  private final CharsetEncoder                 utf8      = encoder(UTF8);
+
+  private CharsetEncoder                       encoder;
+  private HttpServletResponse                  resp;
+  private OutputStream                         out;
+  private Writer                               writer;
+  private int                                  len;
+  private int                                  total;
+  private boolean                              streaming;
+  private boolean                              head;
+  private boolean                              fresh;
+  private int                                  matched;
+
+  /**
+   * open the writer of the response.
+   *
+   * @param resp
+   *          the response
+   * @param hint
+   *          the learned size of the output in chars, 0 if unknown
+   * @return the ViewWriter
+   */
+  static ViewWriter open(HttpServletResponse resp, int hint) {
+    ViewWriter w = pool.get();
+    if (w == null || w.resp != null) {
+      // not in pool, or nested
+      w = new ViewWriter();
+      if (pool.get() == null) {
+        pool.set(w);
+      }
+    }
+
+    w.resp = resp;
+    w.len = 0;
+    w.total = 0;
+    w.head = false;
+    w.matched = 0;
+    w.staged.reset();
+
+    String charset = resp.getCharacterEncoding();
+    if (X.isEmpty(charset) || UTF8.name().equalsIgnoreCase(charset)) {
+      w.encoder = w.utf8;
+    } else {
+      w.encoder = encoder(Charset.forName(charset));
+    }
+    w.encoder.reset();
+
+    w.streaming = hint > LIMIT;
+
+    /**
+     * the setBufferSize fails if anything written before, then the staged is
+     * not the whole body, and sent without Content-Length
+     */
+    w.fresh = !resp.isCommitted();
+    if (w.fresh) {
+      try {
+        resp.setBufferSize(w.streaming ? Math.min(hint, MAXBUFFER) : resp.getBufferSize());
+      } catch (IllegalStateException e) {
+        // already written
+        w.fresh = false;
+      }
+    }
+    return w;
+  }
+
+  private static CharsetEncoder encoder(Charset c) {
+    return c.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  @Override
+  public void write(char[] c, int off, int n) throws IOException {
+    total += n;
+
+    boolean flush = false;
+    if (streaming && !head) {
+      // flush the head to browser early
+      for (int i = 0; i < n && !flush; i++) {
+        flush = head = match(c[off + i]);
+      }
+    }
+
+    while (n > 0) {
+      if (len == buf.length) {
+        streaming = true;
+        drain(false);
+      }
+
+      int k = Math.min(n, buf.length - len);
+      System.arraycopy(c, off, buf, len, k);
+      len += k;
+      off += k;
+      n -= k;
+    }
+
+    if (flush) {
+      drain(false);
+      if (writer != null) {
+        writer.flush();
+      } else {
+        out.flush();
+      }
+    }
+  }
+
+  @Override
+  public void write(String s, int off, int n) throws IOException {
+    total += n;
+
+    boolean flush = false;
+    if (streaming && !head) {
+      for (int i = 0; i < n && !flush; i++) {
+        flush = head = match(s.charAt(off + i));
+      }
+    }
+
+    while (n > 0) {
+      if (len == buf.length) {
+        streaming = true;
+        drain(false);
+      }
+
+      int k = Math.min(n, buf.length - len);
+      s.getChars(off, off + k, buf, len);
+      len += k;
+      off += k;
+      n -= k;
+    }
+
+    if (flush) {
+      drain(false);
+      if (writer != null) {
+        writer.flush();
+      } else {
+        out.flush();
+      }
+    }
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    if (len == buf.length) {
+      streaming = true;
+      drain(false);
+    }
+    buf[len++] = (char) c;
+    total++;
+  }
+
+  /**
+   * the template calls flush may break the Content-Length, ignored
+   */
+  @Override
+  public void flush() throws IOException {
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+  }
+
+  /**
+   * finish the output, send the buffered with Content-Length if not streamed,
+   * and release the response.
+   *
+   * @return the size of the output in chars
+   * @throws IOException
+   *           the exception
+   */
+  int finish() throws IOException {
+    if (resp == null) {
+      return total;
+    }
+
+    try {
+      drain(true);
+
+      if (writer != null) {
+        writer.flush();
+      } else {
+        if (!streaming) {
+          if (fresh && !resp.isCommitted()) {
+            resp.setContentLength(staged.size());
+          }
+          staged.writeTo(out);
+        }
+        out.flush();
+      }
+    } finally {
+      resp = null;
+      out = null;
+      writer = null;
+      len = 0;
+    }
+    return total;
+  }
+
+  /**
+   * release the response without sending the buffered, it's called when the
+   * template failed.
+   */
+  void abort() {
+    resp = null;
+    out = null;
+    writer = null;
+    len = 0;
+  }
+
+  /**
+   * encode the buffered chars to the sink, the left chars (surrogate) are
+   * kept.
+   */
+  private void drain(boolean end) throws IOException {
+    if (writer == null && out == null) {
+      try {
+        out = resp.getOutputStream();
+      } catch (IllegalStateException e) {
+        // the writer has been used
+        writer = resp.getWriter();
+      }
+    }
+
+    if (writer != null) {
+      writer.write(buf, 0, len);
+      len = 0;
+      return;
+    }
+
+    CharBuffer in = CharBuffer.wrap(buf, 0, len);
+    while (encoder.encode(in, bytes, end).isOverflow()) {
+      write();
+    }
+    if (end) {
+      CoderResult r = encoder.flush(bytes);
+      while (r.isOverflow()) {
+        write();
+        r = encoder.flush(bytes);
+      }
+    }
+    write();
+
+    int left = in.remaining();
+    System.arraycopy(buf, in.position(), buf, 0, left);
+    len = left;
+  }
+
+  private void write() throws IOException {
+    bytes.flip();
+    if (streaming) {
+      out.write(bytes.array(), 0, bytes.limit());
+    } else {
+      staged.write(bytes.array(), 0, bytes.limit());
+    }
+    bytes.clear();
+  }
+
+  /**
+   * match the "&lt;/head&gt;" char by char, it may be split in the writes.
+   */
+  private boolean match(char c) {
+    if (c == HEAD.charAt(matched)) {
+      matched++;
+    } else {
+      matched = c == '<' ? 1 : 0;
+    }
+    return matched == HEAD.length();
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.bean;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.giiwa.core.bean.Helper.V;
+import org.giiwa.core.bean.Helper.W;
+
+/**
+ * the transaction of RDSHelper, on the in-memory hsqldb.
+ *
+ * @author joe
+ *
+ */
+public class RDSHelperTest extends TestCase {
+
+  @Override
+  protected void setUp() throws Exception {
+    Properties p = new Properties();
+    p.setProperty("db.driver", "org.hsqldb.jdbc.JDBCDriver");
+    p.setProperty("db.url", "jdbc:hsqldb:mem:tx");
+    RDB.init(p);
+
+    Connection c = RDB.getConnection();
+    Statement s = c.createStatement();
+    s.execute("set database transaction control mvcc");
+    s.execute("drop table if exists tbltx");
+    s.execute("create table tbltx (id int primary key, name varchar(20))");
+    s.execute("insert into tbltx values (1, 'a')");
+    s.execute("insert into tbltx values (2, 'b')");
+    s.close();
+    c.close();
+  }
+
+  /**
+   * the insert failed (duplicated key) after the delete, the delete must be
+   * rolled back.
+   */
+  public void testFailedInsertRollback() throws Exception {
+    boolean committed = RDSHelper.tx(new Helper.Tx() {
+
+      @Override
+      public void run() throws Exception {
+        assertEquals(1, RDSHelper.delete("tbltx", W.create("id", 1), Helper.DEFAULT));
+        assertEquals(0, RDSHelper.insertTable("tbltx", V.create("id", 2).set("name", "c"), Helper.DEFAULT));
+      }
+
+    }, Helper.DEFAULT);
+
+    assertFalse(committed);
+    assertEquals(2, count());
+  }
+
+  /**
+   * all the writes succeeded, committed.
+   */
+  public void testCommit() throws Exception {
+    boolean committed = RDSHelper.tx(new Helper.Tx() {
+
+      @Override
+      public void run() throws Exception {
+        RDSHelper.delete("tbltx", W.create("id", 1), Helper.DEFAULT);
+        RDSHelper.insertTable("tbltx", V.create("id", 3).set("name", "c"), Helper.DEFAULT);
+      }
+
+    }, Helper.DEFAULT);
+
+    assertTrue(committed);
+    assertEquals(2, count());
+  }
+
+  /**
+   * the write out of the suspended transaction is kept when the transaction
+   * rolled back, as UID reserves the block.
+   */
+  public void testSuspend() throws Exception {
+    boolean committed = RDSHelper.tx(new Helper.Tx() {
+
+      @Override
+      public void run() throws Exception {
+        RDSHelper.delete("tbltx", W.create("id", 1), Helper.DEFAULT);
+
+        Object held = RDSHelper.suspend();
+        try {
+          RDSHelper.insertTable("tbltx", V.create("id", 3).set("name", "c"), Helper.DEFAULT);
+        } finally {
+          RDSHelper.resume(held);
+        }
+
+        throw new Exception("rollback");
+      }
+
+    }, Helper.DEFAULT);
+
+    assertFalse(committed);
+    assertEquals(3, count());
+  }
+
+  private int count() throws Exception {
+    Connection c = RDB.getConnection();
+    try {
+      Statement s = c.createStatement();
+      ResultSet r = s.executeQuery("select count(*) from tbltx where id in (1, 2, 3)");
+      r.next();
+      int n = r.getInt(1);
+      r.close();
+      s.close();
+      return n;
+    } finally {
+      c.close();
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.giiwa.core.bean.Bean;
+import org.giiwa.core.bean.Column;
+import org.giiwa.core.json.JSON;
+
+/**
+ * the round-trip of the compact codec, and the old entries by java
+ * serialization.
+ *
+ * @author joe
+ *
+ */
+public class CodecTest extends TestCase {
+
+  private Codec codec = new Codec();
+
+  public void testPrimitives() throws Exception {
+    assertNull(codec.decode(codec.encode(null)));
+    assertEquals("\u4e2d\u6587 a", codec.decode(codec.encode("\u4e2d\u6587 a")));
+    assertEquals(1, codec.decode(codec.encode(1)));
+    assertEquals(2L, codec.decode(codec.encode(2L)));
+    assertEquals(1.5d, codec.decode(codec.encode(1.5d)));
+    assertEquals(2.5f, codec.decode(codec.encode(2.5f)));
+    assertEquals(true, codec.decode(codec.encode(true)));
+
+    byte[] b = new byte[] { 1, 2, 3 };
+    assertTrue(Arrays.equals(b, (byte[]) codec.decode(codec.encode(b))));
+
+    assertEquals('G', codec.encode("a")[0]);
+  }
+
+  public void testCollections() throws Exception {
+    Map<String, Object> m = new HashMap<String, Object>();
+    m.put("a", 1);
+    m.put("b", "x");
+
+    List<Object> l1 = new ArrayList<Object>();
+    l1.add(m);
+    l1.add(null);
+    l1.add(3L);
+
+    Object o = codec.decode(codec.encode(l1));
+    assertEquals(ArrayList.class, o.getClass());
+    assertEquals(l1, o);
+
+    JSON j = JSON.create();
+    j.put("a", 1);
+    j.put("l", l1);
+    o = codec.decode(codec.encode(j));
+    assertTrue(o instanceof JSON);
+    assertEquals(j, o);
+
+    // not compact, by java serialization
+    TreeMap<String, Object> t = new TreeMap<String, Object>(m);
+    o = codec.decode(codec.encode(t));
+    assertEquals(TreeMap.class, o.getClass());
+    assertEquals(t, o);
+  }
+
+  public void testBean() throws Exception {
+    Item e = new Item();
+    e.set("name", "joe");
+    e.set("n", 10);
+    e.set("extra", "x");
+    e.setExpired(12345L);
+
+    Object o = codec.decode(codec.encode(e));
+    assertEquals(Item.class, o.getClass());
+
+    Item e1 = (Item) o;
+    assertEquals("joe", e1.name);
+    assertEquals(10L, e1.n);
+    assertEquals("x", e1.get("extra"));
+    assertEquals(12345L, e1.getExpiredTime());
+  }
+
+  public void testLegacy() throws Exception {
+    Map<String, Object> m = new HashMap<String, Object>();
+    m.put("a", 1);
+    m.put("b", "x");
+
+    ByteArrayOutputStream bb = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bb);
+    out.writeObject(m);
+    out.close();
+
+    byte[] b = bb.toByteArray();
+    assertEquals((byte) 0xAC, b[0]);
+    assertEquals((byte) 0xED, b[1]);
+    assertEquals(m, codec.decode(b));
+
+    assertNull(codec.decode(null));
+    assertNull(codec.decode(new byte[0]));
+  }
+
+  public void testUnknownVersion() throws Exception {
+    byte[] b = codec.encode("a");
+    b[1] = 99;
+    try {
+      codec.decode(b);
+      fail("decoded the unknown version");
+    } catch (IOException e) {
+      // ok
+    }
+  }
+
+  public static class Item extends Bean {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "name")
+    String                    name;
+
+    @Column(name = "n")
+    long                      n;
+
+  }
+
+}
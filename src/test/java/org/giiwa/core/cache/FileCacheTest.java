@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.cache;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.giiwa.framework.web.Model;
+
+/**
+ * the multi-get/set/delete of the file cache, and the LRU falls back to the
+ * file.
+ *
+ * @author joe
+ *
+ */
+public class FileCacheTest extends TestCase {
+
+  private File         home;
+  private ICacheSystem cache;
+
+  @Override
+  protected void setUp() throws Exception {
+    home = File.createTempFile("giiwa", "");
+    home.delete();
+    home.mkdirs();
+    Model.GIIWA_HOME = home.getAbsolutePath();
+
+    BaseConfiguration conf = new BaseConfiguration();
+    conf.setProperty("file.cache.size", 16);
+    cache = FileCache.create(conf);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    delete(home);
+  }
+
+  public void testSetGet() throws Exception {
+    assertNull(cache.get("a"));
+
+    assertTrue(cache.set("a", "1"));
+    assertEquals("1", cache.get("a"));
+
+    // null deletes
+    cache.set("a", null);
+    assertNull(cache.get("a"));
+  }
+
+  public void testAll() throws Exception {
+    Map<String, Object> m = new HashMap<String, Object>();
+    m.put("a", "1");
+    m.put("b", 2);
+    m.put("c", 3L);
+    assertTrue(cache.setAll(m));
+
+    Map<String, Object> m1 = cache.getAll(Arrays.asList("a", "b", "c", "d"));
+    assertEquals(m, m1);
+
+    assertTrue(cache.deleteAll(Arrays.asList("a", "b")));
+    m1 = cache.getAll(Arrays.asList("a", "b", "c"));
+    assertEquals(1, m1.size());
+    assertEquals(3L, m1.get("c"));
+
+    assertTrue(cache.getAll(null).isEmpty());
+  }
+
+  public void testEvicted() throws Exception {
+    // the LRU holds one in each segment, the others are read from the file
+    for (int i = 0; i < 100; i++) {
+      cache.set("k" + i, i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, cache.get("k" + i));
+    }
+
+    // the new instance reads from the file
+    BaseConfiguration conf = new BaseConfiguration();
+    ICacheSystem c1 = FileCache.create(conf);
+    assertEquals(7, c1.get("k7"));
+  }
+
+  private static void delete(File f) {
+    File[] ff = f.listFiles();
+    if (ff != null) {
+      for (File f1 : ff) {
+        delete(f1);
+      }
+    }
+    f.delete();
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.task;
+
+import java.util.Calendar;
+
+import junit.framework.TestCase;
+
+/**
+ * the next fire time of the cron expression.
+ *
+ * @author joe
+ *
+ */
+public class CronTest extends TestCase {
+
+  public void testMinutes() {
+    Cron c = Cron.create("*/15 * * * *");
+    assertEquals(time(2024, 9, 3, 10, 15), c.next(time(2024, 9, 3, 10, 7)));
+
+    // strictly after
+    assertEquals(time(2024, 9, 3, 10, 30), c.next(time(2024, 9, 3, 10, 15)));
+    assertEquals(time(2024, 9, 4, 0, 0), c.next(time(2024, 9, 3, 23, 59)));
+
+    c = Cron.create("5,10-12 8 * * *");
+    assertEquals(time(2024, 9, 3, 8, 10), c.next(time(2024, 9, 3, 8, 5)));
+    assertEquals(time(2024, 9, 4, 8, 5), c.next(time(2024, 9, 3, 8, 12)));
+  }
+
+  public void testMonthEnds() {
+    Cron c = Cron.create("0 0 1 * *");
+    assertEquals(time(2024, 2, 1, 0, 0), c.next(time(2024, 1, 31, 10, 0)));
+    assertEquals(time(2025, 1, 1, 0, 0), c.next(time(2024, 12, 31, 23, 59)));
+
+    // no 31 in february and april
+    c = Cron.create("0 0 31 * *");
+    assertEquals(time(2023, 3, 31, 0, 0), c.next(time(2023, 1, 31, 0, 0)));
+    assertEquals(time(2023, 5, 31, 0, 0), c.next(time(2023, 3, 31, 0, 0)));
+
+    // leap day
+    c = Cron.create("0 0 29 2 *");
+    assertEquals(time(2024, 2, 29, 0, 0), c.next(time(2023, 3, 1, 0, 0)));
+
+    // never
+    assertEquals(-1, Cron.create("0 0 30 2 *").next(time(2024, 1, 1, 0, 0)));
+  }
+
+  public void testWeeks() {
+    // 2024-09-01 is sunday
+    Cron c = Cron.create("0 0 * * 1");
+    assertEquals(time(2024, 9, 9, 0, 0), c.next(time(2024, 9, 3, 0, 0)));
+
+    // 0 and 7 are sunday
+    assertEquals(time(2024, 9, 8, 12, 0), Cron.create("0 12 * * 7").next(time(2024, 9, 2, 0, 0)));
+    assertEquals(time(2024, 9, 8, 12, 0), Cron.create("0 12 * * 0").next(time(2024, 9, 2, 0, 0)));
+
+    // day-of-month restricted only
+    assertEquals(time(2024, 9, 10, 0, 0), Cron.create("0 0 10 * *").next(time(2024, 9, 1, 0, 0)));
+  }
+
+  public void testDayOrWeek() {
+    // the 10th or monday
+    Cron c = Cron.create("0 0 10 * 1");
+    assertEquals(time(2024, 9, 2, 0, 0), c.next(time(2024, 9, 1, 0, 0)));
+    assertEquals(time(2024, 9, 10, 0, 0), c.next(time(2024, 9, 9, 0, 0)));
+    assertEquals(time(2024, 9, 16, 0, 0), c.next(time(2024, 9, 10, 0, 0)));
+  }
+
+  public void testBad() {
+    String[] ss = new String[] { "* * * *", "60 * * * *", "* 24 * * *", "* * 0 * *", "* * * 13 *", "* * * * 8",
+        "*/0 * * * *", "5-1 * * * *" };
+    for (String s : ss) {
+      try {
+        Cron.create(s);
+        fail("parsed the bad expression, " + s);
+      } catch (IllegalArgumentException e) {
+        // ok
+      }
+    }
+  }
+
+  private static long time(int year, int month, int day, int hour, int minute) {
+    Calendar c = Calendar.getInstance();
+    c.clear();
+    c.set(year, month - 1, day, hour, minute, 0);
+    return c.getTimeInMillis();
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.core.task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.giiwa.core.task.TimingWheel.Timer;
+
+/**
+ * the timers in the levels of the wheel are cascaded and fired at the
+ * expired tick, the ticks are advanced by the test.
+ *
+ * @author joe
+ *
+ */
+public class TimingWheelTest extends TestCase {
+
+  private TimingWheel w;
+  private List<Timer> expired = new ArrayList<Timer>();
+
+  @Override
+  protected void setUp() throws Exception {
+    w = new TimingWheel(false);
+  }
+
+  public void testCascade() {
+    // level 0, 1, 2, 3, and parked beyond the span
+    long[] ticks = new long[] { 5, 100, 5000, 300000, (1L << 24) + 1000 };
+    Timer[] tt = new Timer[ticks.length];
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < ticks.length; i++) {
+      tt[i] = new Timer(null);
+      w.arm(tt[i], now + ticks[i] * TimingWheel.TICK);
+    }
+    assertEquals(ticks.length, w.size());
+
+    for (int i = 0; i < tt.length; i++) {
+      Timer t = tt[i];
+      assertTrue(t.expires >= ticks[i]);
+
+      advance(t.expires - 1);
+      assertTrue("fired early, " + ticks[i], expired.isEmpty());
+      assertTrue(t.armed());
+
+      advance(t.expires);
+      assertEquals(1, expired.size());
+      assertSame(t, expired.get(0));
+      assertFalse(t.armed());
+      expired.clear();
+    }
+    assertEquals(0, w.size());
+  }
+
+  public void testRearm() {
+    long now = System.currentTimeMillis();
+    Timer t1 = new Timer(null);
+    Timer t2 = new Timer(null);
+    w.arm(t1, now + 100 * TimingWheel.TICK);
+    w.arm(t2, now + 200 * TimingWheel.TICK);
+
+    assertTrue(w.cancel(t2));
+    assertFalse(w.cancel(t2));
+
+    // re-armed earlier
+    w.arm(t1, now + 10 * TimingWheel.TICK);
+    assertEquals(1, w.size());
+
+    advance(t1.expires);
+    assertEquals(1, expired.size());
+    assertSame(t1, expired.get(0));
+    expired.clear();
+
+    advance(300);
+    assertTrue(expired.isEmpty());
+  }
+
+  public void testPast() {
+    Timer t = new Timer(null);
+    advance(100);
+    w.arm(t, System.currentTimeMillis() - 1000);
+
+    // fired in the next tick
+    advance(101);
+    assertEquals(1, expired.size());
+  }
+
+  private void advance(long tick) {
+    synchronized (w) {
+      w.advance(tick, expired);
+    }
+  }
+
+}
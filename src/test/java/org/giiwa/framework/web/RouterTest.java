@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web;
+
+import junit.framework.TestCase;
+
+import org.giiwa.framework.web.Router.Match;
+
+/**
+ * the lookup of the routes, the models are discovered from the package
+ * "org.giiwa.framework.web.routes".
+ *
+ * @author joe
+ *
+ */
+public class RouterTest extends TestCase {
+
+  @Override
+  protected void setUp() throws Exception {
+    Module m = new Module();
+    m.pack = "org.giiwa.framework.web.routes";
+    Module.home = m;
+    Module.classLoader = new GClassLoader(RouterTest.class.getClassLoader());
+    Router.reset();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    Router.reset();
+    Module.home = null;
+    Module.classLoader = null;
+  }
+
+  public void testModel() {
+    Match m = Router.find(Model.METHOD_GET, "/user");
+    assertEquals(org.giiwa.framework.web.routes.user.class, m.model.model);
+    assertEquals("/user", m.uri);
+    assertTrue(m.exact());
+    assertEquals("onGet", m.mapping.method.getName());
+
+    // in the trie
+    assertSame(m.model, Router.model("/user"));
+    assertSame(m.model, Router.find(Model.METHOD_GET, "/user/").model);
+  }
+
+  public void testMethod() {
+    Match m = Router.find(Model.METHOD_GET, "/user/edit");
+    assertEquals("edit", m.path);
+    assertEquals("edit", m.mapping.method.getName());
+    assertNull(m.params);
+
+    m = Router.find(Model.METHOD_POST, "/user/edit");
+    assertEquals("save", m.mapping.method.getName());
+
+    // no such path
+    m = Router.find(Model.METHOD_GET, "/user/remove");
+    assertEquals(org.giiwa.framework.web.routes.user.class, m.model.model);
+    assertEquals("remove", m.path);
+    assertNull(m.mapping);
+  }
+
+  public void testRegex() {
+    Match m = Router.find(Model.METHOD_GET, "/user/12/detail");
+    assertEquals("detail", m.mapping.method.getName());
+    assertEquals(1, m.params.length);
+    assertEquals("12", m.params[0]);
+
+    // not a name, the model is the prefix
+    m = Router.find(Model.METHOD_GET, "/user/1.2/detail");
+    assertEquals("detail", m.mapping.method.getName());
+    assertEquals("1.2", m.params[0]);
+
+    assertNull(Router.find(Model.METHOD_POST, "/user/12/detail").mapping);
+  }
+
+  public void testLongest() {
+    // "/user" is in the trie, the longer is discovered
+    assertNotNull(Router.find(Model.METHOD_GET, "/user"));
+
+    Match m = Router.find(Model.METHOD_GET, "/admin/user/edit");
+    assertEquals(org.giiwa.framework.web.routes.admin.user.class, m.model.model);
+    assertEquals("/admin/user", m.uri);
+    assertEquals("edit", m.mapping.method.getName());
+
+    m = Router.find(Model.METHOD_GET, "/user/edit");
+    assertEquals(org.giiwa.framework.web.routes.user.class, m.model.model);
+  }
+
+  public void testMiss() {
+    assertNull(Router.find(Model.METHOD_GET, "/"));
+    assertNull(Router.find(Model.METHOD_GET, "/none/edit"));
+    assertNull(Router.find(Model.METHOD_GET, "/admin"));
+    assertNull(Router.model("/admin"));
+    assertNull(Router.model("/user/edit"));
+
+    // dropped when the modules are changed
+    assertNotNull(Router.find(Model.METHOD_GET, "/user"));
+    Router.reset();
+    Module.home = null;
+    assertNull(Router.find(Model.METHOD_GET, "/user"));
+  }
+
+}
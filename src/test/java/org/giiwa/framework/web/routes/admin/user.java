@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web.routes.admin;
+
+import org.giiwa.framework.web.Model;
+import org.giiwa.framework.web.Path;
+
+/**
+ * the model in the sub package for the RouterTest.
+ *
+ * @author joe
+ *
+ */
+public class user extends Model {
+
+  @Path(path = "edit")
+  public void edit() {
+  }
+
+}
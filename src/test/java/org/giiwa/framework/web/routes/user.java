@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web.routes;
+
+import org.giiwa.framework.web.Model;
+import org.giiwa.framework.web.Path;
+
+/**
+ * the model for the RouterTest.
+ *
+ * @author joe
+ *
+ */
+public class user extends Model {
+
+  @Path()
+  public void onGet() {
+  }
+
+  @Path(path = "edit", method = Model.METHOD_GET)
+  public void edit() {
+  }
+
+  @Path(path = "edit", method = Model.METHOD_POST)
+  public void save() {
+  }
+
+  @Path(path = "(.*)/detail", method = Model.METHOD_GET)
+  public void detail(String id) {
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 JIHU, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package org.giiwa.framework.web.view;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * the range parsing of FileView.
+ *
+ * @author joe
+ *
+ */
+public class FileViewTest extends TestCase {
+
+  public void testSingle() {
+    assertRanges("bytes=0-99", 1000, 0, 100);
+    assertRanges("bytes=500-", 1000, 500, 1000);
+    assertRanges("bytes=-100", 1000, 900, 1000);
+    assertRanges("bytes=900-2000", 1000, 900, 1000);
+  }
+
+  public void testNotSatisfiable() {
+    assertNull(FileView.ranges("bytes=1000-", 1000));
+    assertNull(FileView.ranges("bytes=abc", 1000));
+    assertNull(FileView.ranges("items=0-1", 1000));
+  }
+
+  public void testMerged() {
+    // overlapped, adjacent and out of order
+    assertRanges("bytes=500-599,0-99,50-149,150-199", 1000, 0, 200, 500, 600);
+    assertRanges("bytes=0-,0-,0-", 1000, 0, 1000);
+  }
+
+  public void testTooMany() {
+    StringBuilder sb = new StringBuilder("bytes=0-0");
+    for (int i = 1; i <= FileView.MAXRANGES; i++) {
+      sb.append(",").append(i * 2).append("-").append(i * 2);
+    }
+
+    List<long[]> l1 = FileView.ranges(sb.toString(), 1000);
+    assertNotNull(l1);
+    assertTrue(l1.isEmpty());
+  }
+
+  private void assertRanges(String range, long total, long... expected) {
+    List<long[]> l1 = FileView.ranges(range, total);
+    assertNotNull(range, l1);
+    assertEquals(range, expected.length / 2, l1.size());
+    for (int i = 0; i < l1.size(); i++) {
+      assertEquals(range, expected[i * 2], l1.get(i)[0]);
+      assertEquals(range, expected[i * 2 + 1], l1.get(i)[1]);
+    }
+  }
+
+}